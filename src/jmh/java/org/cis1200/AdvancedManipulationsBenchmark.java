@@ -0,0 +1,56 @@
+package org.cis1200;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of adjustContrast and flood. Blur and reducePalette have extra
+ * parameters and are in BlurBenchmark and ReducePaletteBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class AdvancedManipulationsBenchmark {
+
+    @Param({ "16x16", "640x480", "1920x1080", "3840x2160", "7680x4320" })
+    public String size;
+
+    @Param({ "true" })
+    public boolean packed;
+
+    @Param({ "false" })
+    public boolean parallel;
+
+    private PixelPicture pic;
+    private PixelPicture regions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkImages.configure(packed, parallel);
+        pic = BenchmarkImages.photo(size);
+        regions = BenchmarkImages.regions(size);
+    }
+
+    @Benchmark
+    public PixelPicture adjustContrast() {
+        return AdvancedManipulations.adjustContrast(pic, 3.0);
+    }
+
+    @Benchmark
+    public PixelPicture adjustContrastKnownMean() {
+        return AdvancedManipulations.adjustContrast(pic, 3.0, 128);
+    }
+
+    @Benchmark
+    public PixelPicture flood() {
+        // fills the region to the lower left of the diagonal, about 1/16
+        // of the picture
+        return AdvancedManipulations.flood(
+                regions, Pixel.RED, regions.getHeight() - 1, 0
+        );
+    }
+}
@@ -0,0 +1,91 @@
+package org.cis1200;
+
+/**
+ * Synthetic pictures and shared settings for the benchmarks.
+ * <p>
+ * Sizes are given as {@code "WIDTHxHEIGHT"}, from the 16x16 test fixtures
+ * up to 8K. The pictures are generated rather than loaded so that every size
+ * is available and runs are repeatable.
+ */
+public class BenchmarkImages {
+
+    private BenchmarkImages() {
+    }
+
+    /**
+     * Chooses the code paths to benchmark.
+     *
+     * @param packed   whether to use the packed kernels rather than the
+     *                 Pixel-based reference code
+     * @param parallel whether to run in row bands on several threads
+     */
+    public static void configure(boolean packed, boolean parallel) {
+        PackedKernels.setEnabled(packed);
+        Parallel.setEnabled(parallel);
+    }
+
+    /**
+     * @param size a size such as {@code "1920x1080"}
+     * @return the width
+     */
+    public static int width(String size) {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+
+    /**
+     * @param size a size such as {@code "1920x1080"}
+     * @return the height
+     */
+    public static int height(String size) {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    /**
+     * Makes a photo-like picture: smooth gradients with a little noise, so
+     * that it has many distinct colors, most of them repeated.
+     *
+     * @param size the size of the picture
+     * @return the picture
+     */
+    public static PixelPicture photo(String size) {
+        int w = width(size);
+        int h = height(size);
+        int[] rgb = new int[w * h];
+        int seed = 1200;
+        for (int row = 0; row < h; row++) {
+            for (int col = 0; col < w; col++) {
+                seed = seed * 1103515245 + 12345;
+                int noise = (seed >>> 16) & 15;
+                rgb[row * w + col] = Pixel.pack(
+                        (int) ((long) col * 240 / w) + noise,
+                        (int) ((long) row * 240 / h) + noise,
+                        ((row / 32 + col / 32) & 1) * 120 + noise
+                );
+            }
+        }
+        return PixelPicture.fromPacked(w, h, rgb);
+    }
+
+    /**
+     * Makes a picture of flat regions, a 4x4 grid of colors crossed by a
+     * one-pixel diagonal line, for benchmarking flood fill.
+     *
+     * @param size the size of the picture
+     * @return the picture
+     */
+    public static PixelPicture regions(String size) {
+        int w = width(size);
+        int h = height(size);
+        int[] rgb = new int[w * h];
+        for (int row = 0; row < h; row++) {
+            for (int col = 0; col < w; col++) {
+                int cell = (row * 4 / h) * 4 + col * 4 / w;
+                rgb[row * w + col] = Pixel.pack(cell * 16, 255 - cell * 16, 128);
+            }
+        }
+        for (int i = 0; i < Math.min(w, h); i++) {
+            rgb[i * w + i] = 0;
+        }
+        return PixelPicture.fromPacked(w, h, rgb);
+    }
+}
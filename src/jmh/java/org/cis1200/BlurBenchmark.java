@@ -0,0 +1,42 @@
+package org.cis1200;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of AdvancedManipulations.blur across radii.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class BlurBenchmark {
+
+    @Param({ "16x16", "640x480", "1920x1080", "3840x2160", "7680x4320" })
+    public String size;
+
+    @Param({ "1", "5", "25" })
+    public int radius;
+
+    @Param({ "true" })
+    public boolean packed;
+
+    @Param({ "false" })
+    public boolean parallel;
+
+    private PixelPicture pic;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkImages.configure(packed, parallel);
+        pic = BenchmarkImages.photo(size);
+    }
+
+    @Benchmark
+    public PixelPicture blur() {
+        return AdvancedManipulations.blur(pic, radius);
+    }
+}
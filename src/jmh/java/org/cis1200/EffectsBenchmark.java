@@ -0,0 +1,59 @@
+package org.cis1200;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of each effect in Effects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class EffectsBenchmark {
+
+    @Param({ "16x16", "640x480", "1920x1080", "3840x2160", "7680x4320" })
+    public String size;
+
+    @Param({ "true" })
+    public boolean packed;
+
+    @Param({ "false" })
+    public boolean parallel;
+
+    private PixelPicture pic;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkImages.configure(packed, parallel);
+        pic = BenchmarkImages.photo(size);
+    }
+
+    @Benchmark
+    public PixelPicture eighteenNinety() {
+        return Effects.eighteenNinety(pic);
+    }
+
+    @Benchmark
+    public PixelPicture pinHole() {
+        return Effects.pinHole(pic);
+    }
+
+    @Benchmark
+    public PixelPicture zombie() {
+        return Effects.zombie(pic);
+    }
+
+    @Benchmark
+    public PixelPicture plastic() {
+        return Effects.plastic(pic);
+    }
+
+    @Benchmark
+    public PixelPicture peaches() {
+        return Effects.peaches(pic);
+    }
+}
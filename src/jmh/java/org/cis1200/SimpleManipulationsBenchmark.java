@@ -0,0 +1,96 @@
+package org.cis1200;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of each method of SimpleManipulations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class SimpleManipulationsBenchmark {
+
+    @Param({ "16x16", "640x480", "1920x1080", "3840x2160", "7680x4320" })
+    public String size;
+
+    @Param({ "true" })
+    public boolean packed;
+
+    @Param({ "false" })
+    public boolean parallel;
+
+    private PixelPicture pic;
+    private PixelPicture other;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkImages.configure(packed, parallel);
+        pic = BenchmarkImages.photo(size);
+        other = SimpleManipulations.invertColors(pic);
+    }
+
+    @Benchmark
+    public PixelPicture rotateCW() {
+        return SimpleManipulations.rotateCW(pic);
+    }
+
+    @Benchmark
+    public PixelPicture rotateCCW() {
+        return SimpleManipulations.rotateCCW(pic);
+    }
+
+    @Benchmark
+    public PixelPicture rotate180() {
+        return SimpleManipulations.rotate180(pic);
+    }
+
+    @Benchmark
+    public PixelPicture mirrorHorizontal() {
+        return SimpleManipulations.mirrorHorizontal(pic);
+    }
+
+    @Benchmark
+    public PixelPicture mirrorVertical() {
+        return SimpleManipulations.mirrorVertical(pic);
+    }
+
+    @Benchmark
+    public PixelPicture border() {
+        return SimpleManipulations.border(pic, 20, Pixel.BLACK);
+    }
+
+    @Benchmark
+    public PixelPicture grayScaleLuminosity() {
+        return SimpleManipulations.grayScaleLuminosity(pic);
+    }
+
+    @Benchmark
+    public PixelPicture invertColors() {
+        return SimpleManipulations.invertColors(pic);
+    }
+
+    @Benchmark
+    public PixelPicture grayScaleAverage() {
+        return SimpleManipulations.grayScaleAverage(pic);
+    }
+
+    @Benchmark
+    public PixelPicture scaleColors() {
+        return SimpleManipulations.scaleColors(pic, 1.0, 0.95, 0.75);
+    }
+
+    @Benchmark
+    public PixelPicture alphaBlend() {
+        return SimpleManipulations.alphaBlend(0.3, pic, other);
+    }
+
+    @Benchmark
+    public PixelPicture vignette() {
+        return SimpleManipulations.vignette(pic);
+    }
+}
@@ -33,6 +33,10 @@ public class AdvancedManipulations {
      * @return the new adjusted picture
      */
     public static PixelPicture adjustContrast(PixelPicture pic, double multiplier) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.adjustContrast(pic, multiplier);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
 
@@ -49,16 +53,44 @@ public class AdvancedManipulations {
         }
         int averageIntensity = (int) (Math.round(total / (3.0 * w * h)));
 
+        return adjustContrast(pic, multiplier, averageIntensity);
+    }
+
+    /**
+     * Change the contrast of a picture around a given average intensity,
+     * skipping the pass over the picture that adjustContrast(pic, multiplier)
+     * makes to find it. This is useful when the average is already known,
+     * for example from an earlier frame or from sampledMeanIntensity, or
+     * when the picture is processed a strip at a time.
+     *
+     * @param pic           the original picture
+     * @param multiplier    the factor by which each color component
+     *                      of each pixel should be scaled
+     * @param meanIntensity the average color intensity to scale around
+     * @return the new adjusted picture
+     */
+    public static PixelPicture adjustContrast(
+            PixelPicture pic, double multiplier, int meanIntensity
+    ) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.adjustContrast(pic, multiplier, meanIntensity);
+        }
+
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+
+        Pixel[][] bmp = pic.getBitmap();
+
         for (int k = 0; k < h; k++) {
             for (int l = 0; l < w; l++) {
                 Pixel p = bmp[k][l];
 
-                int r = (int) Math.round((p.getRed() - averageIntensity) * multiplier)
-                        + averageIntensity;
-                int g = (int) Math.round((p.getGreen() - averageIntensity) * multiplier)
-                        + averageIntensity;
-                int b = (int) Math.round((p.getBlue() - averageIntensity) * multiplier)
-                        + averageIntensity;
+                int r = (int) Math.round((p.getRed() - meanIntensity) * multiplier)
+                        + meanIntensity;
+                int g = (int) Math.round((p.getGreen() - meanIntensity) * multiplier)
+                        + meanIntensity;
+                int b = (int) Math.round((p.getBlue() - meanIntensity) * multiplier)
+                        + meanIntensity;
 
                 bmp[k][l] = new Pixel(r, g, b);
             }
@@ -66,6 +98,31 @@ public class AdvancedManipulations {
         return new PixelPicture(bmp);
     }
 
+    /**
+     * Finds the average color intensity of a picture, as used by
+     * adjustContrast: the sum of all color components divided by three
+     * times the number of pixels, rounded to an int.
+     *
+     * @param pic the picture
+     * @return the average color intensity, between 0 and 255
+     */
+    public static int meanIntensity(PixelPicture pic) {
+        return PackedKernels.meanIntensity(pic);
+    }
+
+    /**
+     * Estimates the average color intensity of a picture from about
+     * {@code samples} pixels spread evenly through it. With at least as many
+     * samples as pixels, this is exactly meanIntensity.
+     *
+     * @param pic     the picture
+     * @param samples the number of pixels to look at
+     * @return the estimated average color intensity, between 0 and 255
+     */
+    public static int sampledMeanIntensity(PixelPicture pic, int samples) {
+        return PackedKernels.sampledMeanIntensity(pic, samples);
+    }
+
     /**
      * Reduce a picture to its most common colors.
      * You will need to make use of the ColorMap class to generate a map from
@@ -104,10 +161,15 @@ public class AdvancedManipulations {
      *
      * @param pic       the original picture
      * @param numColors the maximum number of colors that can be used in the
-     *                  reduced picture
+     *                  reduced picture; if the picture has fewer colors than
+     *                  this, all of them are kept
      * @return the new reduced picture
      */
     public static PixelPicture reducePalette(PixelPicture pic, int numColors) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.reducePalette(pic, numColors);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
 
@@ -200,6 +262,10 @@ public class AdvancedManipulations {
      * @return A blurred version of the original picture.
      */
     public static PixelPicture blur(PixelPicture pic, int radius) {
+        if (PackedKernels.isEnabled() && radius >= 0) {
+            return BoxBlur.blur(pic, radius);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
 
@@ -278,6 +344,32 @@ public class AdvancedManipulations {
      * @return A new picture with the appropriate region flooded.
      */
     public static PixelPicture flood(PixelPicture pic, Pixel c, int row, int col) {
-        return pic;
+        return flood(pic, c, row, col, 0);
+    }
+
+    /**
+     * Flood pixels of a similar color with a different color.
+     * <p>
+     * This is the same as {@link #flood(PixelPicture, Pixel, int, int)},
+     * except that a neighbor belongs to the region if its
+     * {@link Pixel#distance(Pixel)} from the clicked color is at most
+     * {@code tolerance}. A tolerance of 0 floods only the exact color.
+     * <p>
+     * The fill is done span by span (see FloodFill), so it takes time
+     * proportional to the size of the region.
+     *
+     * @param pic       The original picture to be flooded.
+     * @param c         The color with which to flood the region.
+     * @param row       The row of the point on which the user "clicked."
+     * @param col       The column of the point on which the user "clicked."
+     * @param tolerance How far a color may be from the clicked one and still
+     *                  be flooded.
+     * @return A new picture with the appropriate region flooded, or the
+     *         original picture if the point is outside of it.
+     */
+    public static PixelPicture flood(
+            PixelPicture pic, Pixel c, int row, int col, int tolerance
+    ) {
+        return FloodFill.fill(pic, c, row, col, tolerance);
     }
 }
\ No newline at end of file
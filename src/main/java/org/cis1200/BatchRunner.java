@@ -0,0 +1,489 @@
+package org.cis1200;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Applies a list of manipulations to every image in a directory, from the
+ * command line and without a display:
+ * <pre>
+ * java -cp target/classes org.cis1200.BatchRunner [options] IN_DIR OUT_DIR OP...
+ *
+ *   --threads N    filter threads (default: one per core)
+ *   --io-threads N decode threads, and as many encode threads (default 2)
+ *   --in-flight N  images held in memory at once (default: twice --threads)
+ *   --format F     output format, such as png, jpg or pxr (default: that of
+ *                  each input file)
+ * </pre>
+ * Each OP is an operation name, optionally followed by {@code =} and
+ * comma-separated arguments, for example {@code grayScaleLuminosity},
+ * {@code blur=3} or {@code scaleColors=1,0.9,0.8}. Operations run in the
+ * order given; {@link #operations()} lists them. Results are written to
+ * OUT_DIR under the input file's name. With {@code --format}, files whose
+ * names differ only in their extension would overwrite each other, so such
+ * a batch is refused before any file is read.
+ * <p>
+ * Files flow through three stages, each on its own threads: decoding,
+ * filtering and encoding, so that reading and writing overlap with
+ * computing. At most {@code --in-flight} files are between the start of
+ * decoding and the end of encoding; once that many are, no new file is
+ * started until one finishes. That bounds memory and keeps a slow stage
+ * from piling up work behind it. Filter threads each work on their own
+ * file, so a manipulation only splits a single picture into parallel bands
+ * when there are fewer files than filter threads.
+ */
+public class BatchRunner {
+
+    private static final Pattern SUFFIX = Pattern.compile("(.*)\\.(\\w{3,4})");
+
+    private static final Map<String, String> OPERATIONS = new LinkedHashMap<>();
+
+    static {
+        OPERATIONS.put("rotateCW", "");
+        OPERATIONS.put("rotateCCW", "");
+        OPERATIONS.put("rotate180", "");
+        OPERATIONS.put("mirrorHorizontal", "");
+        OPERATIONS.put("mirrorVertical", "");
+        OPERATIONS.put("border", "[width[,r,g,b]]");
+        OPERATIONS.put("grayScaleLuminosity", "");
+        OPERATIONS.put("grayScaleAverage", "");
+        OPERATIONS.put("invertColors", "");
+        OPERATIONS.put("scaleColors", "r,g,b");
+        OPERATIONS.put("vignette", "");
+        OPERATIONS.put("alphaBlend", "alpha,image");
+        OPERATIONS.put("contrast", "multiplier");
+        OPERATIONS.put("reducePalette", "colors");
+        OPERATIONS.put("blur", "radius");
+        OPERATIONS.put("flood", "row,col[,r,g,b]");
+        OPERATIONS.put("eighteenNinety", "");
+        OPERATIONS.put("pinHole", "");
+        OPERATIONS.put("zombie", "");
+        OPERATIONS.put("plastic", "");
+        OPERATIONS.put("peaches", "");
+        OPERATIONS.put("custom", "");
+    }
+
+    /**
+     * The outcome of a batch.
+     */
+    public static final class Report {
+        private final int processed;
+        private final List<File> skipped;
+        private final Map<File, Throwable> failures;
+
+        private Report(int processed, List<File> skipped, Map<File, Throwable> failures) {
+            this.processed = processed;
+            this.skipped = Collections.unmodifiableList(skipped);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * @return the number of files written
+         */
+        public int getProcessed() {
+            return processed;
+        }
+
+        /**
+         * @return the files skipped because they are not images this
+         *         program can read
+         */
+        public List<File> getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return the files that could not be processed, with the reason
+         */
+        public Map<File, Throwable> getFailures() {
+            return failures;
+        }
+    }
+
+    private final Pipeline pipeline;
+    private final String format;
+    private final int threads;
+    private final int ioThreads;
+    private final int inFlight;
+
+    /**
+     * Creates a runner.
+     *
+     * @param pipeline  the manipulations to apply to each picture
+     * @param format    the output format, or null to keep each input's
+     * @param threads   the number of filter threads
+     * @param ioThreads the number of decode threads, and of encode threads
+     * @param inFlight  the most files held in memory at once
+     */
+    public BatchRunner(
+            Pipeline pipeline, String format, int threads, int ioThreads, int inFlight
+    ) {
+        if (threads < 1 || ioThreads < 1 || inFlight < 1) {
+            throw new IllegalArgumentException(
+                    "thread and in-flight counts must be positive, got " + threads + ", "
+                            + ioThreads + " and " + inFlight
+            );
+        }
+        if (format != null && !canWrite(format)) {
+            throw new IllegalArgumentException("no writer for format " + format);
+        }
+        this.pipeline = pipeline;
+        this.format = format;
+        this.threads = threads;
+        this.ioThreads = ioThreads;
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * Creates a runner that keeps each input's format, with one filter
+     * thread per core.
+     *
+     * @param pipeline the manipulations to apply to each picture
+     */
+    public BatchRunner(Pipeline pipeline) {
+        this(pipeline, null, Runtime.getRuntime().availableProcessors(), 2,
+                2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return the operation names accepted by {@link #parse(List)}, each
+     *         mapped to a description of its arguments
+     */
+    public static Map<String, String> operations() {
+        return Collections.unmodifiableMap(OPERATIONS);
+    }
+
+    /**
+     * Builds a pipeline from operation specifications such as {@code blur=3}.
+     * Consecutive per-pixel operations are fused into one pass.
+     *
+     * @param specs the operations, in order
+     * @return the pipeline
+     * @throws IllegalArgumentException if an operation is unknown or has the
+     *                                  wrong arguments
+     */
+    public static Pipeline parse(List<String> specs) {
+        Pipeline p = Pipeline.start();
+        for (String spec : specs) {
+            int eq = spec.indexOf('=');
+            String name = eq < 0 ? spec : spec.substring(0, eq);
+            String[] args = eq < 0 ? new String[0] : spec.substring(eq + 1).split(",");
+            try {
+                p = add(p, name, args);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad number in " + spec, e);
+            }
+        }
+        return p;
+    }
+
+    private static Pipeline add(Pipeline p, String name, String[] args) {
+        if (!OPERATIONS.containsKey(name)) {
+            throw new IllegalArgumentException("unknown operation " + name);
+        }
+        switch (name) {
+            case "border" -> {
+                expect(name, args, 0, 1, 4);
+                int width = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+                Pixel color = args.length > 1 ? color(args, 1) : Pixel.BLACK;
+                return p.then(pic -> SimpleManipulations.border(pic, width, color));
+            }
+            case "scaleColors" -> {
+                expect(name, args, 3);
+                double r = Double.parseDouble(args[0]);
+                double g = Double.parseDouble(args[1]);
+                double b = Double.parseDouble(args[2]);
+                return p.map(PointOps.scaleColors(r, g, b));
+            }
+            case "alphaBlend" -> {
+                expect(name, args, 2);
+                double alpha = Double.parseDouble(args[0]);
+                PixelPicture other = new PixelPicture(args[1]);
+                return p.then(pic -> SimpleManipulations.alphaBlend(alpha, pic, other));
+            }
+            case "contrast" -> {
+                expect(name, args, 1);
+                double m = Double.parseDouble(args[0]);
+                return p.then(pic -> AdvancedManipulations.adjustContrast(pic, m));
+            }
+            case "reducePalette" -> {
+                expect(name, args, 1);
+                int colors = Integer.parseInt(args[0]);
+                if (colors < 1) {
+                    throw new IllegalArgumentException("reducePalette needs at least 1 color");
+                }
+                return p.then(pic -> AdvancedManipulations.reducePalette(pic, colors));
+            }
+            case "blur" -> {
+                expect(name, args, 1);
+                int radius = Integer.parseInt(args[0]);
+                if (radius < 1) {
+                    throw new IllegalArgumentException("blur radius must be positive");
+                }
+                return p.then(pic -> AdvancedManipulations.blur(pic, radius));
+            }
+            case "flood" -> {
+                expect(name, args, 2, 5);
+                int row = Integer.parseInt(args[0]);
+                int col = Integer.parseInt(args[1]);
+                Pixel color = args.length > 2 ? color(args, 2) : new Pixel(255, 0, 0);
+                return p.then(pic -> AdvancedManipulations.flood(pic, color, row, col));
+            }
+            default -> {
+                expect(name, args, 0);
+                return switch (name) {
+                    case "rotateCW" -> p.then(SimpleManipulations::rotateCW);
+                    case "rotateCCW" -> p.then(SimpleManipulations::rotateCCW);
+                    case "rotate180" -> p.then(SimpleManipulations::rotate180);
+                    case "mirrorHorizontal" -> p.then(SimpleManipulations::mirrorHorizontal);
+                    case "mirrorVertical" -> p.then(SimpleManipulations::mirrorVertical);
+                    case "grayScaleLuminosity" -> p.map(PointOps.grayScaleLuminosity());
+                    case "grayScaleAverage" -> p.map(PointOps.grayScaleAverage());
+                    case "invertColors" -> p.map(PointOps.invertColors());
+                    case "vignette" -> p.map(PointOps.vignette());
+                    case "eighteenNinety" -> p.then(Effects::eighteenNinety);
+                    case "pinHole" -> p.then(Effects::pinHole);
+                    case "zombie" -> p.then(Effects::zombie);
+                    case "plastic" -> p.then(Effects::plastic);
+                    case "peaches" -> p.then(Effects::peaches);
+                    case "custom" -> p.then(Effects::custom);
+                    default -> throw new AssertionError(name);
+                };
+            }
+        }
+    }
+
+    private static void expect(String name, String[] args, int... counts) {
+        for (int c : counts) {
+            if (args.length == c) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException(
+                name + " takes arguments " + OPERATIONS.get(name) + ", got "
+                        + String.join(",", args)
+        );
+    }
+
+    private static Pixel color(String[] args, int from) {
+        return new Pixel(
+                Integer.parseInt(args[from]),
+                Integer.parseInt(args[from + 1]),
+                Integer.parseInt(args[from + 2])
+        );
+    }
+
+    private static boolean canWrite(String format) {
+        return format.equalsIgnoreCase(RawRaster.SUFFIX)
+                || ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    /**
+     * Processes every image in a directory. Files that are not images are
+     * skipped, and files that fail are reported rather than stopping the
+     * batch; the report lists both.
+     *
+     * @param inDir  the directory to read images from
+     * @param outDir the directory to write results to; created if needed
+     * @return how many files were written, and which were skipped or failed
+     * @throws IOException          if a directory cannot be read or created,
+     *                              or if two files would be written to the
+     *                              same output file
+     * @throws InterruptedException if interrupted while waiting for files to
+     *                              finish
+     */
+    public Report run(File inDir, File outDir) throws IOException, InterruptedException {
+        File[] listed = inDir.listFiles(File::isFile);
+        if (listed == null) {
+            throw new IOException("cannot list " + inDir);
+        }
+        Arrays.sort(listed);
+        List<File> files = new ArrayList<>();
+        List<File> skipped = new ArrayList<>();
+        for (File f : listed) {
+            if (isImage(f)) {
+                files.add(f);
+            } else {
+                skipped.add(f);
+            }
+        }
+        // compared ignoring case, in case the output directory does
+        Map<String, File> outputs = new HashMap<>();
+        for (File f : files) {
+            File other = outputs.put(outputName(f).toLowerCase(Locale.ROOT), f);
+            if (other != null) {
+                throw new IOException(
+                        other.getName() + " and " + f.getName() + " would both be written to "
+                                + outputName(f)
+                );
+            }
+        }
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("cannot create " + outDir);
+        }
+
+        // when every filter thread has its own file, splitting a picture
+        // into bands only adds overhead
+        boolean splitPictures = files.size() < threads;
+
+        ExecutorService decoders = Executors.newFixedThreadPool(ioThreads, named("decode"));
+        ExecutorService filters = Executors.newFixedThreadPool(threads, named("filter"));
+        ExecutorService encoders = Executors.newFixedThreadPool(ioThreads, named("encode"));
+        Semaphore slots = new Semaphore(inFlight);
+        AtomicInteger processed = new AtomicInteger();
+        Map<File, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        try {
+            for (File in : files) {
+                slots.acquire();
+                File out = new File(outDir, outputName(in));
+                pending.add(
+                        CompletableFuture
+                                .supplyAsync(() -> new PixelPicture(in.getPath()), decoders)
+                                .thenApplyAsync(pic -> filter(pic, splitPictures), filters)
+                                .thenAcceptAsync(pic -> pic.save(out.getPath()), encoders)
+                                .whenComplete((ok, e) -> {
+                                    slots.release();
+                                    if (e == null) {
+                                        processed.incrementAndGet();
+                                    } else {
+                                        failures.put(in, e.getCause() != null ? e.getCause() : e);
+                                    }
+                                })
+                );
+            }
+            for (CompletableFuture<Void> f : pending) {
+                try {
+                    f.join();
+                } catch (RuntimeException e) {
+                    // recorded in failures
+                }
+            }
+        } finally {
+            decoders.shutdownNow();
+            filters.shutdownNow();
+            encoders.shutdownNow();
+        }
+        return new Report(processed.get(), skipped, new LinkedHashMap<>(failures));
+    }
+
+    private PixelPicture filter(PixelPicture pic, boolean splitPictures) {
+        return Parallel.call(splitPictures, () -> {
+            PixelPicture result = pipeline.apply(pic);
+            // compute any lazy rotation or border here rather than on an
+            // encode thread
+            result.packed();
+            return result;
+        });
+    }
+
+    private static boolean isImage(File f) {
+        if (RawRaster.isRawRaster(f)) {
+            return true;
+        }
+        Matcher m = SUFFIX.matcher(f.getName());
+        return m.matches() && ImageIO.getImageReadersBySuffix(m.group(2)).hasNext();
+    }
+
+    private String outputName(File in) {
+        if (format == null) {
+            return in.getName();
+        }
+        Matcher m = SUFFIX.matcher(in.getName());
+        String base = m.matches() ? m.group(1) : in.getName();
+        return base + "." + format;
+    }
+
+    private static ThreadFactory named(String stage) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "batch-" + stage + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println(
+                "usage: BatchRunner [--threads N] [--io-threads N] [--in-flight N]"
+                        + " [--format F] IN_DIR OUT_DIR OP..."
+        );
+        System.err.println("operations:");
+        for (Map.Entry<String, String> op : OPERATIONS.entrySet()) {
+            String args = op.getValue().isEmpty() ? "" : "=" + op.getValue();
+            System.err.println("  " + op.getKey() + args);
+        }
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = cores;
+        int ioThreads = 2;
+        int inFlight = -1;
+        String format = null;
+
+        int i = 0;
+        try {
+            for (; i < args.length && args[i].startsWith("--"); i += 2) {
+                if (i + 1 >= args.length) {
+                    usage("missing value for " + args[i]);
+                }
+                switch (args[i]) {
+                    case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                    case "--io-threads" -> ioThreads = Integer.parseInt(args[i + 1]);
+                    case "--in-flight" -> inFlight = Integer.parseInt(args[i + 1]);
+                    case "--format" -> format = args[i + 1];
+                    default -> usage("unknown option " + args[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            usage("bad number for " + args[i]);
+        }
+        if (args.length - i < 3) {
+            usage("expected IN_DIR, OUT_DIR and at least one operation");
+        }
+
+        BatchRunner runner;
+        try {
+            Pipeline pipeline = parse(Arrays.asList(args).subList(i + 2, args.length));
+            runner = new BatchRunner(
+                    pipeline, format, threads, ioThreads, inFlight > 0 ? inFlight : 2 * threads
+            );
+        } catch (RuntimeException e) {
+            usage(e.getMessage());
+            return;
+        }
+
+        Parallel.setEnabled(true);
+        PixelPicture.setLazyViews(true);
+        Report report = runner.run(new File(args[i]), new File(args[i + 1]));
+        for (Map.Entry<File, Throwable> f : report.getFailures().entrySet()) {
+            System.err.println(f.getKey() + ": " + f.getValue());
+        }
+        System.out.println(
+                report.getProcessed() + " written, " + report.getSkipped().size()
+                        + " skipped, " + report.getFailures().size() + " failed"
+        );
+        System.exit(report.getFailures().isEmpty() ? 0 : 1);
+    }
+}
@@ -0,0 +1,164 @@
+package org.cis1200;
+
+/**
+ * A box blur whose cost does not depend on the radius.
+ *
+ * The box average is separable: the sum over a (2r+1)x(2r+1) box is the sum,
+ * over the box's rows, of each row's horizontal (2r+1)-wide sum. So we keep a
+ * running horizontal sum as we slide along each row, and a running vertical
+ * sum (per column) of those horizontal sums as we slide down the image. Each
+ * step adds the pixel entering the window and subtracts the one leaving it,
+ * so every output pixel costs O(1).
+ *
+ * Only in-bounds pixels are summed and the count is the number of in-bounds
+ * pixels in the box, which is (in-bounds columns) * (in-bounds rows). The
+ * sums are exact integers and are rounded with Math.round exactly as
+ * AdvancedManipulations.blur does, so the results are identical.
+ *
+ * In parallel, each band of output rows primes its own window from the
+ * source rows within r of its first row, so the bands share no state.
+ */
+public class BoxBlur {
+
+    private BoxBlur() {
+    }
+
+    /**
+     * Blurs a picture.
+     *
+     * @param pic    the picture to blur
+     * @param radius the radius of the blurring box; must not be negative
+     * @return the blurred picture
+     */
+    static PixelPicture blur(PixelPicture pic, int radius) {
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+        int[] tgt = new int[w * h];
+        blur(pic.packed(), tgt, w, h, radius);
+        return PixelPicture.fromPacked(w, h, tgt);
+    }
+
+    /**
+     * Blurs a packed raster into another one of the same size.
+     *
+     * @param src    the packed pixels to read, in row-major order
+     * @param dst    where to write the blurred pixels; must not be {@code src}
+     * @param w      the width of the raster
+     * @param h      the height of the raster
+     * @param radius the radius of the blurring box; must not be negative
+     */
+    static void blur(int[] src, int[] dst, int w, int h, int radius) {
+        // a box wider than the image covers the same pixels as one that fits
+        int r = Math.min(radius, Math.max(w, h));
+
+        int[] colCount = new int[w];
+        for (int col = 0; col < w; col++) {
+            colCount[col] = Math.min(w - 1, col + r) - Math.max(0, col - r) + 1;
+        }
+
+        Parallel.forRows(
+                h, w, 2 * r, (from, to) -> blurRows(src, dst, w, h, r, colCount, from, to)
+        );
+    }
+
+    /**
+     * Blurs output rows {@code [from, to)}.
+     */
+    private static void blurRows(
+            int[] src, int[] dst, int w, int h, int r, int[] colCount, int from, int to
+    ) {
+        // horizontal sums of the rows currently inside the vertical window
+        int ringRows = Math.min(2 * r + 2, h);
+        int[] ringR = new int[ringRows * w];
+        int[] ringG = new int[ringRows * w];
+        int[] ringB = new int[ringRows * w];
+
+        // per-column sums of the horizontal sums in the window
+        int[] sumR = new int[w];
+        int[] sumG = new int[w];
+        int[] sumB = new int[w];
+
+        // prime the window with the rows within r of the first row
+        for (int row = Math.max(0, from - r); row <= Math.min(from + r, h - 1); row++) {
+            addRow(src, w, row, (row % ringRows) * w, ringR, ringG, ringB, r);
+            accumulate(ringR, ringG, ringB, (row % ringRows) * w, sumR, sumG, sumB, 1);
+        }
+
+        for (int row = from; row < to; row++) {
+            int rowCount = Math.min(h - 1, row + r) - Math.max(0, row - r) + 1;
+            int base = row * w;
+            for (int col = 0; col < w; col++) {
+                double count = colCount[col] * rowCount;
+                dst[base + col] = Pixel.pack(
+                        (int) Math.round(sumR[col] / count),
+                        (int) Math.round(sumG[col] / count),
+                        (int) Math.round(sumB[col] / count)
+                );
+            }
+
+            // slide the window down one row
+            int leaving = row - r;
+            if (leaving >= 0) {
+                int off = (leaving % ringRows) * w;
+                accumulate(ringR, ringG, ringB, off, sumR, sumG, sumB, -1);
+            }
+            int entering = row + r + 1;
+            if (entering < h) {
+                int off = (entering % ringRows) * w;
+                addRow(src, w, entering, off, ringR, ringG, ringB, r);
+                accumulate(ringR, ringG, ringB, off, sumR, sumG, sumB, 1);
+            }
+        }
+    }
+
+    /**
+     * Computes the horizontal window sums of one source row into the ring.
+     */
+    private static void addRow(
+            int[] src, int w, int row, int off, int[] hr, int[] hg, int[] hb, int r
+    ) {
+        int base = row * w;
+        int sr = 0;
+        int sg = 0;
+        int sb = 0;
+        for (int col = 0; col <= Math.min(r, w - 1); col++) {
+            int p = src[base + col];
+            sr += Pixel.red(p);
+            sg += Pixel.green(p);
+            sb += Pixel.blue(p);
+        }
+
+        for (int col = 0; col < w; col++) {
+            hr[off + col] = sr;
+            hg[off + col] = sg;
+            hb[off + col] = sb;
+
+            int leaving = col - r;
+            if (leaving >= 0) {
+                int p = src[base + leaving];
+                sr -= Pixel.red(p);
+                sg -= Pixel.green(p);
+                sb -= Pixel.blue(p);
+            }
+            int entering = col + r + 1;
+            if (entering < w) {
+                int p = src[base + entering];
+                sr += Pixel.red(p);
+                sg += Pixel.green(p);
+                sb += Pixel.blue(p);
+            }
+        }
+    }
+
+    private static void accumulate(
+            int[] hr, int[] hg, int[] hb, int off,
+            int[] sumR, int[] sumG, int[] sumB, int sign
+    ) {
+        int w = sumR.length;
+        for (int col = 0; col < w; col++) {
+            sumR[col] += sign * hr[off + col];
+            sumG[col] += sign * hg[off + col];
+            sumB[col] += sign * hb[off + col];
+        }
+    }
+}
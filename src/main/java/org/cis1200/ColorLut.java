@@ -0,0 +1,380 @@
+package org.cis1200;
+
+import java.util.Arrays;
+
+/**
+ * A point-wise color operation compiled to lookup tables.
+ * <p>
+ * A ColorLut has three stages:
+ * <ol>
+ * <li>each component goes through its own 256-entry input table;</li>
+ * <li>optionally, the three results are mixed into one gray value, by
+ * luminosity or by average;</li>
+ * <li>if they were mixed, the gray value goes through three 256-entry output
+ * tables, one per component.</li>
+ * </ol>
+ * scaleColors, invertColors and the per-component part of adjustContrast
+ * are input tables only; the gray scale manipulations are a mix. Any two
+ * ColorLuts compose into a single ColorLut of the same form (see
+ * {@link #then(ColorLut)}), so a chain of them costs one lookup per pixel.
+ * <p>
+ * Tables are built with exactly the rounding and clipping of the Pixel-based
+ * manipulations. Applying a ColorLut uses only integer arithmetic. The
+ * luminosity mix {@code round(0.299 r + 0.587 g + 0.114 b)} is computed as
+ * {@code (299 r + 587 g + 114 b + 500) / 1000}, which agrees with the double
+ * formula except for some sums that are exactly halfway between two integers
+ * and that the double formula rounds down because of representation error.
+ * Those few colors are found once and kept in a sorted table.
+ * <p>
+ * A ColorLut is also a PointOp; composing it with another ColorLut through
+ * {@link #andThen(PointOp)} gives a ColorLut.
+ */
+public class ColorLut implements PointOp {
+
+    private static final int NONE = 0;
+    private static final int LUMINOSITY = 1;
+    private static final int AVERAGE = 2;
+
+    private static final int[] IDENTITY = new int[256];
+
+    // the packed colors whose luminosity sum is an exact half that the
+    // double formula rounds down, in increasing order
+    private static final int[] LUMINOSITY_ROUNDS_DOWN;
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            IDENTITY[v] = v;
+        }
+        LUMINOSITY_ROUNDS_DOWN = findLuminosityExceptions();
+    }
+
+    private final int[] inR;
+    private final int[] inG;
+    private final int[] inB;
+    private final int mixer;
+    private final int[] outR;
+    private final int[] outG;
+    private final int[] outB;
+
+    // derived tables for the apply loop: shifted input tables when there is
+    // no mix, weighted input tables and packed output colors when there is
+    private final int[] shiftedR;
+    private final int[] shiftedG;
+    private final int[] weightedR;
+    private final int[] weightedG;
+    private final int[] weightedB;
+    private final int[] packedOut;
+
+    private ColorLut(
+            int[] inR, int[] inG, int[] inB, int mixer, int[] outR, int[] outG, int[] outB
+    ) {
+        this.inR = inR;
+        this.inG = inG;
+        this.inB = inB;
+        this.mixer = mixer;
+        this.outR = outR;
+        this.outG = outG;
+        this.outB = outB;
+
+        if (mixer == NONE) {
+            shiftedR = new int[256];
+            shiftedG = new int[256];
+            for (int v = 0; v < 256; v++) {
+                shiftedR[v] = inR[v] << 16;
+                shiftedG[v] = inG[v] << 8;
+            }
+            weightedR = null;
+            weightedG = null;
+            weightedB = null;
+            packedOut = null;
+        } else {
+            shiftedR = null;
+            shiftedG = null;
+            weightedR = new int[256];
+            weightedG = new int[256];
+            weightedB = new int[256];
+            packedOut = new int[256];
+            for (int v = 0; v < 256; v++) {
+                weightedR[v] = mixer == LUMINOSITY ? 299 * inR[v] : inR[v];
+                weightedG[v] = mixer == LUMINOSITY ? 587 * inG[v] : inG[v];
+                weightedB[v] = mixer == LUMINOSITY ? 114 * inB[v] : inB[v];
+                packedOut[v] = outR[v] << 16 | outG[v] << 8 | outB[v];
+            }
+        }
+    }
+
+    /**
+     * @return a ColorLut that leaves every color unchanged
+     */
+    public static ColorLut identity() {
+        return new ColorLut(IDENTITY, IDENTITY, IDENTITY, NONE, null, null, null);
+    }
+
+    /**
+     * Makes a ColorLut that maps each component through its own table.
+     *
+     * @param red   the new red value for each old red value
+     * @param green the new green value for each old green value
+     * @param blue  the new blue value for each old blue value
+     * @return the ColorLut
+     * @throws IllegalArgumentException if a table does not have 256 entries
+     *                                  or has an entry outside 0..255
+     */
+    public static ColorLut perChannel(int[] red, int[] green, int[] blue) {
+        return new ColorLut(checked(red), checked(green), checked(blue), NONE, null, null, null);
+    }
+
+    /**
+     * @param rfactor red factor
+     * @param gfactor green factor
+     * @param bfactor blue factor
+     * @return the ColorLut of SimpleManipulations.scaleColors
+     */
+    public static ColorLut scaleColors(double rfactor, double gfactor, double bfactor) {
+        return new ColorLut(
+                scaleTable(rfactor), scaleTable(gfactor), scaleTable(bfactor), NONE,
+                null, null, null
+        );
+    }
+
+    /**
+     * @return the ColorLut of SimpleManipulations.invertColors
+     */
+    public static ColorLut invertColors() {
+        int[] t = new int[256];
+        for (int v = 0; v < 256; v++) {
+            t[v] = 255 - v;
+        }
+        return new ColorLut(t, t, t, NONE, null, null, null);
+    }
+
+    /**
+     * @return the ColorLut of SimpleManipulations.grayScaleLuminosity
+     */
+    public static ColorLut grayScaleLuminosity() {
+        return new ColorLut(
+                IDENTITY, IDENTITY, IDENTITY, LUMINOSITY, IDENTITY, IDENTITY, IDENTITY
+        );
+    }
+
+    /**
+     * @return the ColorLut of SimpleManipulations.grayScaleAverage
+     */
+    public static ColorLut grayScaleAverage() {
+        return new ColorLut(IDENTITY, IDENTITY, IDENTITY, AVERAGE, IDENTITY, IDENTITY, IDENTITY);
+    }
+
+    /**
+     * The per-component part of AdvancedManipulations.adjustContrast, once
+     * the average intensity is known.
+     *
+     * @param multiplier    the contrast multiplier
+     * @param meanIntensity the average color intensity to scale around
+     * @return the ColorLut
+     */
+    public static ColorLut contrast(double multiplier, int meanIntensity) {
+        int[] t = new int[256];
+        for (int v = 0; v < 256; v++) {
+            t[v] = clip((int) Math.round((v - meanIntensity) * multiplier) + meanIntensity);
+        }
+        return new ColorLut(t, t, t, NONE, null, null, null);
+    }
+
+    /**
+     * Composes two ColorLuts into one that applies this one and then
+     * {@code after}.
+     *
+     * @param after the ColorLut to apply to the result of this one
+     * @return the composed ColorLut
+     */
+    public ColorLut then(ColorLut after) {
+        if (mixer == NONE) {
+            if (after.mixer == NONE) {
+                return new ColorLut(
+                        compose(inR, after.inR), compose(inG, after.inG), compose(inB, after.inB),
+                        NONE, null, null, null
+                );
+            }
+            return new ColorLut(
+                    compose(inR, after.inR), compose(inG, after.inG), compose(inB, after.inB),
+                    after.mixer, after.outR, after.outG, after.outB
+            );
+        }
+
+        // the result of a mix depends only on the gray value, so whatever
+        // follows becomes a new set of output tables
+        int[] r = new int[256];
+        int[] g = new int[256];
+        int[] b = new int[256];
+        for (int v = 0; v < 256; v++) {
+            int p = after.apply(packedOut[v]);
+            r[v] = p >>> 16;
+            g[v] = p >>> 8 & 0xff;
+            b[v] = p & 0xff;
+        }
+        return new ColorLut(inR, inG, inB, mixer, r, g, b);
+    }
+
+    /**
+     * Maps one color.
+     *
+     * @param rgb a packed {@code 0xRRGGBB} color
+     * @return the mapped packed color
+     */
+    public int apply(int rgb) {
+        int r = rgb >>> 16 & 0xff;
+        int g = rgb >>> 8 & 0xff;
+        int b = rgb & 0xff;
+        if (mixer == NONE) {
+            return shiftedR[r] | shiftedG[g] | inB[b];
+        }
+        return packedOut[mix(r, g, b)];
+    }
+
+    @Override
+    public int apply(int rgb, int row, int col) {
+        return apply(rgb);
+    }
+
+    @Override
+    public PointOp andThen(PointOp after) {
+        if (after instanceof ColorLut) {
+            return then((ColorLut) after);
+        }
+        return PointOp.super.andThen(after);
+    }
+
+    /**
+     * Maps part of a packed raster.
+     *
+     * @param src  the colors to map
+     * @param dst  where to write the mapped colors; may be {@code src}
+     * @param from the first index to map
+     * @param to   one past the last index to map
+     */
+    public void apply(int[] src, int[] dst, int from, int to) {
+        if (mixer == NONE) {
+            int[] tr = shiftedR;
+            int[] tg = shiftedG;
+            int[] tb = inB;
+            for (int i = from; i < to; i++) {
+                int p = src[i];
+                dst[i] = tr[p >>> 16 & 0xff] | tg[p >>> 8 & 0xff] | tb[p & 0xff];
+            }
+        } else {
+            int[] out = packedOut;
+            for (int i = from; i < to; i++) {
+                int p = src[i];
+                dst[i] = out[mix(p >>> 16 & 0xff, p >>> 8 & 0xff, p & 0xff)];
+            }
+        }
+    }
+
+    /**
+     * Maps every pixel of a picture, in bands of rows if {@link Parallel} is
+     * enabled.
+     *
+     * @param pic the picture to map
+     * @return a new picture
+     */
+    public PixelPicture apply(PixelPicture pic) {
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+        int[] src = pic.packed();
+        int[] tgt = new int[src.length];
+        Parallel.forRows(h, w, (from, to) -> apply(src, tgt, from * w, to * w));
+        return PixelPicture.fromPacked(w, h, tgt);
+    }
+
+    /**
+     * Mixes three raw components (before the input tables) into a gray value.
+     */
+    private int mix(int r, int g, int b) {
+        if (mixer == AVERAGE) {
+            // round(s / 3.0): s / 3 is never exactly halfway
+            return (weightedR[r] + weightedG[g] + weightedB[b] + 1) / 3;
+        }
+        int x = weightedR[r] + weightedG[g] + weightedB[b];
+        int gray = (x + 500) / 1000;
+        if (x % 1000 == 500 && Arrays.binarySearch(
+                LUMINOSITY_ROUNDS_DOWN, inR[r] << 16 | inG[g] << 8 | inB[b]) >= 0) {
+            gray--;
+        }
+        return gray;
+    }
+
+    private static int[] scaleTable(double factor) {
+        int[] t = new int[256];
+        for (int v = 0; v < 256; v++) {
+            t[v] = clip((int) Math.round(v * factor));
+        }
+        return t;
+    }
+
+    private static int[] compose(int[] first, int[] second) {
+        int[] t = new int[256];
+        for (int v = 0; v < 256; v++) {
+            t[v] = second[first[v]];
+        }
+        return t;
+    }
+
+    private static int[] checked(int[] table) {
+        if (table.length != 256) {
+            throw new IllegalArgumentException("a table needs 256 entries, got " + table.length);
+        }
+        for (int v : table) {
+            if (v < 0 || v > 255) {
+                throw new IllegalArgumentException("table entry out of range: " + v);
+            }
+        }
+        return table.clone();
+    }
+
+    private static int clip(int c) {
+        return Math.max(0, Math.min(255, c));
+    }
+
+    /**
+     * Finds every color whose luminosity sum is an exact half that the double
+     * formula rounds down. Only sums with 299 r + 587 g + 114 b = 500 (mod
+     * 1000) are halves, and for each (r, g) at most a few blue values give
+     * one, so this looks at a few thousand colors rather than all of them.
+     */
+    private static int[] findLuminosityExceptions() {
+        // the blue values giving each residue of 114 b modulo 1000
+        int[][] bluesFor = new int[1000][];
+        int[] counts = new int[1000];
+        for (int b = 0; b < 256; b++) {
+            counts[114 * b % 1000]++;
+        }
+        for (int k = 0; k < 1000; k++) {
+            bluesFor[k] = new int[counts[k]];
+            counts[k] = 0;
+        }
+        for (int b = 0; b < 256; b++) {
+            int k = 114 * b % 1000;
+            bluesFor[k][counts[k]++] = b;
+        }
+
+        int[] found = new int[64];
+        int n = 0;
+        for (int r = 0; r < 256; r++) {
+            for (int g = 0; g < 256; g++) {
+                int need = Math.floorMod(500 - 299 * r - 587 * g, 1000);
+                for (int b : bluesFor[need]) {
+                    int exact = (299 * r + 587 * g + 114 * b + 500) / 1000;
+                    if ((int) Math.round(0.299 * r + 0.587 * g + 0.114 * b) != exact) {
+                        if (n == found.length) {
+                            found = Arrays.copyOf(found, n * 2);
+                        }
+                        found[n++] = r << 16 | g << 8 | b;
+                    }
+                }
+            }
+        }
+        // r and g increase in the loops and b is a single byte, so found is
+        // already sorted
+        return Arrays.copyOf(found, n);
+    }
+}
@@ -4,12 +4,70 @@ import java.util.*;
 
 /**
  * This is a data structure that helps keep track of the frequency with which
- * pixels of specific colors occur. It is a sorted map from Pixel to Integer.
+ * pixels of specific colors occur. It is a map from Pixel to Integer.
+ * <p>
+ * Colors are stored as packed {@code 0xRRGGBB} ints with int counts, so
+ * nothing is boxed. By default the map is an open-addressing hash table,
+ * which only takes space for the colors actually seen. A dense map instead
+ * keeps one counter for each of the 2^24 possible colors (64MB); that is
+ * worthwhile for very large pictures, where it turns counting into a single
+ * array increment per pixel. {@link #forPixelCount(int)} picks between the
+ * two.
  */
 public class ColorMap {
 
-    // The internal data structure: a mapping from pixels to integers
-    private final Map<Pixel, Integer> m = new TreeMap<>();
+    private static final int EMPTY = -1;
+    private static final int COLORS = 1 << 24;
+
+    // pictures with at least this many pixels are counted with a dense map
+    private static final int DENSE_THRESHOLD = 1 << 23;
+
+    // fewer sorted entries than this use Arrays.sort instead of a radix sort
+    private static final int RADIX_THRESHOLD = 1 << 12;
+
+    // sparse mode: keys[i] is a color or EMPTY, values[i] its count
+    private int[] keys;
+    private int[] values;
+
+    // dense mode: counts[rgb], with a bit per color recording presence
+    private int[] counts;
+    private long[] present;
+
+    private int size;
+
+    /**
+     * Creates an empty (sparse) map.
+     */
+    public ColorMap() {
+        this(false);
+    }
+
+    /**
+     * Creates an empty map.
+     *
+     * @param dense true for a map with a counter for every possible color,
+     *              false for a hash table sized to the colors seen
+     */
+    public ColorMap(boolean dense) {
+        if (dense) {
+            counts = new int[COLORS];
+            present = new long[COLORS / 64];
+        } else {
+            keys = new int[64];
+            values = new int[64];
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+
+    /**
+     * Creates an empty map suited to counting the colors of a picture.
+     *
+     * @param pixels the number of pixels that will be counted
+     * @return a dense map for very large pictures, a sparse one otherwise
+     */
+    public static ColorMap forPixelCount(int pixels) {
+        return new ColorMap(pixels >= DENSE_THRESHOLD);
+    }
 
     /**
      * Adds element to the map or updates its value if the key already exists.
@@ -18,7 +76,60 @@ public class ColorMap {
      * @param v The int to use as the value.
      */
     public void put(Pixel p, int v) {
-        m.put(p, v);
+        put(p.toRGB(), v);
+    }
+
+    /**
+     * Adds a color to the map or updates its value if it is already there.
+     *
+     * @param rgb The packed color to use as the key.
+     * @param v   The int to use as the value.
+     */
+    public void put(int rgb, int v) {
+        rgb &= 0xffffff;
+        if (counts != null) {
+            markPresent(rgb);
+            counts[rgb] = v;
+        } else {
+            int slot = find(rgb);
+            if (keys[slot] == EMPTY) {
+                insert(slot, rgb, v);
+            } else {
+                values[slot] = v;
+            }
+        }
+    }
+
+    /**
+     * Adds one to the frequency of a pixel, adding it with a frequency of 1
+     * if it is not in the map yet.
+     *
+     * @param p The pixel that was seen.
+     */
+    public void increment(Pixel p) {
+        increment(p.toRGB());
+    }
+
+    /**
+     * Adds one to the frequency of a color, adding it with a frequency of 1
+     * if it is not in the map yet.
+     *
+     * @param rgb The packed color that was seen.
+     */
+    public void increment(int rgb) {
+        rgb &= 0xffffff;
+        if (counts != null) {
+            if (counts[rgb]++ == 0) {
+                markPresent(rgb);
+            }
+        } else {
+            int slot = find(rgb);
+            if (keys[slot] == EMPTY) {
+                insert(slot, rgb, 1);
+            } else {
+                values[slot]++;
+            }
+        }
     }
 
     /**
@@ -28,7 +139,21 @@ public class ColorMap {
      * @return true if the map contains the pixel; false otherwise.
      */
     public boolean contains(Pixel p) {
-        return m.containsKey(p);
+        return contains(p.toRGB());
+    }
+
+    /**
+     * Determines whether the map contains a given color.
+     *
+     * @param rgb The packed color to check for existence.
+     * @return true if the map contains the color; false otherwise.
+     */
+    public boolean contains(int rgb) {
+        rgb &= 0xffffff;
+        if (counts != null) {
+            return (present[rgb >>> 6] & (1L << rgb)) != 0;
+        }
+        return keys[find(rgb)] != EMPTY;
     }
 
     /**
@@ -40,7 +165,30 @@ public class ColorMap {
      * @return The frequency with which the given pixel was used.
      */
     public int getValue(Pixel p) {
-        return m.get(p);
+        return getValue(p.toRGB());
+    }
+
+    /**
+     * Retrieves the frequency with which a color was used. If the color
+     * has not previously been stored in the ColorMap, this function
+     * throws a NullPointerException.
+     *
+     * @param rgb The packed color whose frequency should be retrieved.
+     * @return The frequency with which the given color was used.
+     */
+    public int getValue(int rgb) {
+        rgb &= 0xffffff;
+        if (counts != null) {
+            if (!contains(rgb)) {
+                throw new NullPointerException("color not in map: " + Pixel.fromRGB(rgb));
+            }
+            return counts[rgb];
+        }
+        int slot = find(rgb);
+        if (keys[slot] == EMPTY) {
+            throw new NullPointerException("color not in map: " + Pixel.fromRGB(rgb));
+        }
+        return values[slot];
     }
 
     /**
@@ -49,7 +197,7 @@ public class ColorMap {
      * @return The number of elements in the map.
      */
     public int size() {
-        return m.size();
+        return size;
     }
 
     /**
@@ -60,36 +208,236 @@ public class ColorMap {
      *         with the highest frequency in the image.
      */
     public Pixel[] getSortedPixels() {
-        Map<Integer, List<Pixel>> invert = new TreeMap<>();
-
-        // Invert the map
-        for (Map.Entry<Pixel, Integer> entry : m.entrySet()) {
-            int freq = entry.getValue();
-            Pixel p = entry.getKey();
-            List<Pixel> pixels;
-            if (invert.containsKey(freq)) {
-                pixels = invert.get(freq);
+        return getSortedPixels(size);
+    }
+
+    /**
+     * Gets the most frequent pixels in the map, in the same order as
+     * {@link #getSortedPixels()}. This is the same as the first
+     * {@code limit} elements of that array, but cheaper when {@code limit}
+     * is much smaller than the number of colors.
+     *
+     * @param limit the largest number of pixels to return
+     * @return the {@code min(limit, size())} most frequent pixels
+     */
+    public Pixel[] getSortedPixels(int limit) {
+        int[] colors = getSortedColors(limit);
+        Pixel[] array = new Pixel[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            array[i] = Pixel.fromRGB(colors[i]);
+        }
+        return array;
+    }
+
+    /**
+     * Gets the colors in the map sorted by frequency, in the same order as
+     * {@link #getSortedPixels()}: descending frequency, and colors with the
+     * same frequency in descending order of red, then green, then blue.
+     *
+     * @return the packed colors, most frequent first
+     */
+    public int[] getSortedColors() {
+        return getSortedColors(size);
+    }
+
+    /**
+     * Gets the most frequent colors in the map, in the same order as
+     * {@link #getSortedColors()}.
+     *
+     * @param limit the largest number of colors to return
+     * @return the {@code min(limit, size())} most frequent packed colors
+     */
+    public int[] getSortedColors(int limit) {
+        int k = Math.max(0, Math.min(limit, size));
+
+        // (count, rgb) packed so that ordering the longs orders by count, then
+        // rgb; flipping the sign bit makes that an unsigned order
+        long[] entries;
+        if (k == size) {
+            entries = new long[size];
+            int n = 0;
+            if (counts != null) {
+                for (int word = 0; word < present.length; word++) {
+                    long bits = present[word];
+                    while (bits != 0) {
+                        int rgb = (word << 6) | Long.numberOfTrailingZeros(bits);
+                        entries[n++] = entry(counts[rgb], rgb);
+                        bits &= bits - 1;
+                    }
+                }
             } else {
-                pixels = new LinkedList<>();
-                invert.put(freq, pixels);
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != EMPTY) {
+                        entries[n++] = entry(values[i], keys[i]);
+                    }
+                }
             }
-            pixels.add(p);
+        } else {
+            entries = topK(k);
+        }
+        radixSort(entries);
+
+        int n = entries.length;
+        int[] colors = new int[n];
+        for (int i = 0; i < n; i++) {
+            colors[i] = (int) (entries[n - 1 - i] & 0xffffff);
         }
-        LinkedList<Pixel> answer = new LinkedList<>();
-        for (List<Pixel> l : invert.values()) {
-            if (l != null) {
-                answer.addAll(l);
+        return colors;
+    }
+
+    private static long entry(int count, int rgb) {
+        return (((long) count << 24) | rgb) ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Collects the k largest entries (in no particular order) with a bounded
+     * min-heap, so only k entries are ever held.
+     */
+    private long[] topK(int k) {
+        long[] heap = new long[k];
+        if (k == 0) {
+            return heap;
+        }
+        int n = 0;
+        if (counts != null) {
+            for (int word = 0; word < present.length; word++) {
+                long bits = present[word];
+                while (bits != 0) {
+                    int rgb = (word << 6) | Long.numberOfTrailingZeros(bits);
+                    n = offer(heap, n, entry(counts[rgb], rgb));
+                    bits &= bits - 1;
+                }
+            }
+        } else {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    n = offer(heap, n, entry(values[i], keys[i]));
+                }
             }
         }
-        int k = answer.size();
-        Pixel[] array = new Pixel[k];
+        return heap;
+    }
+
+    private static int offer(long[] heap, int n, long e) {
+        if (n < heap.length) {
+            // sift up
+            int i = n;
+            while (i > 0 && Long.compareUnsigned(heap[(i - 1) >>> 1], e) > 0) {
+                heap[i] = heap[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            heap[i] = e;
+            return n + 1;
+        }
+        if (Long.compareUnsigned(e, heap[0]) <= 0) {
+            return n;
+        }
+        // replace the smallest and sift down
         int i = 0;
-        Iterator<Pixel> it = answer.descendingIterator();
-        while (it.hasNext()) {
-            array[i] = it.next();
-            i++;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) {
+                break;
+            }
+            if (child + 1 < n && Long.compareUnsigned(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (Long.compareUnsigned(heap[child], e) >= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
         }
-        return array;
+        heap[i] = e;
+        return n;
+    }
+
+    /**
+     * Sorts entries into ascending unsigned order with an LSD radix sort on
+     * 16-bit digits, skipping digits on which all entries agree. Short arrays
+     * are not worth clearing the digit table for and use a comparison sort.
+     */
+    private static void radixSort(long[] a) {
+        int n = a.length;
+        if (n < RADIX_THRESHOLD) {
+            for (int i = 0; i < n; i++) {
+                a[i] ^= Long.MIN_VALUE;
+            }
+            Arrays.sort(a);
+            for (int i = 0; i < n; i++) {
+                a[i] ^= Long.MIN_VALUE;
+            }
+            return;
+        }
+        long[] buf = new long[n];
+        int[] bucket = new int[1 << 16];
+        for (int shift = 0; shift < 64; shift += 16) {
+            Arrays.fill(bucket, 0);
+            for (long e : a) {
+                bucket[(int) (e >>> shift) & 0xffff]++;
+            }
+            if (bucket[(int) (a[0] >>> shift) & 0xffff] == n) {
+                continue;
+            }
+            int sum = 0;
+            for (int d = 0; d < bucket.length; d++) {
+                int c = bucket[d];
+                bucket[d] = sum;
+                sum += c;
+            }
+            for (long e : a) {
+                buf[bucket[(int) (e >>> shift) & 0xffff]++] = e;
+            }
+            System.arraycopy(buf, 0, a, 0, n);
+        }
+    }
+
+    private void markPresent(int rgb) {
+        long bit = 1L << rgb;
+        if ((present[rgb >>> 6] & bit) == 0) {
+            present[rgb >>> 6] |= bit;
+            size++;
+        }
+    }
+
+    /**
+     * Finds the slot holding rgb, or the empty slot where it would go.
+     */
+    private int find(int rgb) {
+        int mask = keys.length - 1;
+        int slot = mix(rgb) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != rgb) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
     }
 
-}
\ No newline at end of file
+    private void insert(int slot, int rgb, int v) {
+        keys[slot] = rgb;
+        values[slot] = v;
+        size++;
+        if (size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -3,75 +3,85 @@ package org.cis1200;
 /**
  * This class defines the top-level image effects found on
  * the right-hand side of the GUI.
+ * <p>
+ * Each effect is a Pipeline, so its consecutive per-pixel steps run as a
+ * single pass. The result is the same as calling the manipulations one
+ * after another.
  */
 public class Effects {
 
-    public static PixelPicture eighteenNinety(PixelPicture p) {
-        // create a gray-scale version of the image
-        PixelPicture gray = SimpleManipulations.grayScaleLuminosity(p);
-
-        // color the gray-scale version in a sepia tone
-        PixelPicture sepia = SimpleManipulations.scaleColors(gray, 1.0, 0.95, 0.75);
-
-        // add vignetting, blend in so not so intense
-        PixelPicture vign = SimpleManipulations.vignette(sepia);
-        PixelPicture blend = SimpleManipulations.alphaBlend(0.5, sepia, vign);
+    private static final Pipeline EIGHTEEN_NINETY = Pipeline.start()
+            // create a gray-scale version of the image
+            .map(PointOps.grayScaleLuminosity())
+            // color the gray-scale version in a sepia tone
+            .map(PointOps.scaleColors(1.0, 0.95, 0.75))
+            // add vignetting, blend in so not so intense
+            .map(PointOps.blend(0.5, PointOps.identity(), PointOps.vignette()))
+            // increase the brightness of the image to counteract the vignetting
+            .map(PointOps.scaleColors(1.1, 1.1, 1.1));
+
+    private static final Pipeline PIN_HOLE = Pipeline.start()
+            .map(PointOps.scaleColors(1.0, 0.95, 0.75))
+            .map(PointOps.scaleColors(1.1, 1.1, 1.0))
+            .map(PointOps.vignette())
+            .then(p -> AdvancedManipulations.blur(p, 1))
+            .then(p -> SimpleManipulations.border(p, 10, new Pixel(255, 255, 255)));
+
+    private static final Pipeline ZOMBIE = Pipeline.start()
+            // desaturate by blending in grayscale version, then add a purplish
+            // cast by blending in a tinted copy of the grayscale version
+            .map(
+                    PointOps.blend(
+                            0.7,
+                            PointOps.blend(
+                                    0.2, PointOps.identity(), PointOps.grayScaleLuminosity()
+                            ),
+                            PointOps.grayScaleLuminosity().andThen(
+                                    PointOps.scaleColors(34.0 / 255, 43.0 / 255, 109.0 / 255)
+                            )
+                    )
+            )
+            // up the contrast
+            .then(p -> AdvancedManipulations.adjustContrast(p, 3.0))
+            // put a black border around it
+            .then(p -> SimpleManipulations.border(p, 20, new Pixel(0, 0, 0)));
+
+    private static final Pipeline PLASTIC = Pipeline.start()
+            // significantly increase the contrast
+            .then(p -> AdvancedManipulations.adjustContrast(p, 3.0))
+            // add a vignette
+            .map(PointOps.vignette());
+
+    private static final Pipeline PEACHES = Pipeline.start()
+            // Make everything brighter
+            .map(PointOps.scaleColors(1.2, 1.2, 1.2))
+            // reduce the palette
+            .then(p -> AdvancedManipulations.reducePalette(p, 512))
+            // add a peach tint to the image
+            .map(PointOps.scaleColors(1.0, 229.0 / 255, 180.0 / 255));
 
-        // increase the brightness of the image to counteract the vignetting
-        return SimpleManipulations.scaleColors(blend, 1.1, 1.1, 1.1);
+    public static PixelPicture eighteenNinety(PixelPicture p) {
+        return EIGHTEEN_NINETY.apply(p);
     }
 
     public static PixelPicture pinHole(PixelPicture p) {
-        PixelPicture p1 = SimpleManipulations.scaleColors(p, 1.0, 0.95, 0.75);
-        PixelPicture p2 = SimpleManipulations.scaleColors(p1, 1.1, 1.1, 1.0);
-        PixelPicture p3 = SimpleManipulations.vignette(p2);
-        PixelPicture p4 = AdvancedManipulations.blur(p3, 1);
-        return SimpleManipulations.border(
-                p4, 10,
-                new Pixel(255, 255, 255)
-        );
+        return PIN_HOLE.apply(p);
     }
 
     public static PixelPicture zombie(PixelPicture p) {
-        // desaturate by blending in grayscale version
-        PixelPicture gray = SimpleManipulations.grayScaleLuminosity(p);
-        PixelPicture p1 = SimpleManipulations.alphaBlend(0.2, p, gray);
-
-        // add purplish cast
-        PixelPicture purples = SimpleManipulations
-                .scaleColors(gray, 34.0 / 255, 43.0 / 255, 109.0 / 255);
-        p1 = SimpleManipulations.alphaBlend(0.7, p1, purples);
-
-        // up the contrast
-        p1 = AdvancedManipulations.adjustContrast(p1, 3.0);
-
-        // put a black border around it
-        p1 = SimpleManipulations.border(p1, 20, new Pixel(0, 0, 0));
-        return p1;
+        return ZOMBIE.apply(p);
     }
 
     public static PixelPicture plastic(PixelPicture p) {
-        // significantly increase the contrast
-        PixelPicture p1 = AdvancedManipulations.adjustContrast(p, 3.0);
-
-        // add a vignette
-        p1 = SimpleManipulations.vignette(p1);
-        return p1;
+        return PLASTIC.apply(p);
     }
 
     public static PixelPicture peaches(PixelPicture p) {
-        // Make everything brighter
-        PixelPicture p1 = SimpleManipulations.scaleColors(p, 1.2, 1.2, 1.2);
-
-        // reduce the palette
-        p1 = AdvancedManipulations.reducePalette(p1, 512);
-
-        // add a peach tint to the image
-        return SimpleManipulations.scaleColors(p1, 1.0, 229.0 / 255, 180.0 / 255);
+        return PEACHES.apply(p);
     }
 
     public static PixelPicture custom(PixelPicture p) {
         return p;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package org.cis1200;
+
+/**
+ * Scanline flood fill over a packed raster.
+ *
+ * Instead of queueing every pixel of the region, the queue holds seeds. Each
+ * seed is extended left and right into the longest matching horizontal span,
+ * the whole span is filled at once, and then the rows directly above and
+ * below the span are scanned for runs of matching pixels; one seed is queued
+ * per run. A bit per pixel records what has already been filled, so no point
+ * is processed twice and no queue search is ever needed.
+ *
+ * Matching is always done against the original picture, so filling with a
+ * color that is itself within the tolerance still terminates.
+ */
+public class FloodFill {
+
+    private FloodFill() {
+    }
+
+    /**
+     * Floods the region connected to (row, col) with the given color.
+     *
+     * @param pic       the original picture
+     * @param c         the color to fill with
+     * @param row       the row of the starting point
+     * @param col       the column of the starting point
+     * @param tolerance the largest {@link Pixel#distance(Pixel)} from the
+     *                  starting color that still counts as the same color
+     * @return a new picture with the region flooded, or {@code pic} if the
+     *         starting point is outside the picture
+     */
+    static PixelPicture fill(PixelPicture pic, Pixel c, int row, int col, int tolerance) {
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+        if (row < 0 || row >= h || col < 0 || col >= w) {
+            return pic;
+        }
+
+        int[] src = pic.packed();
+        int[] dst = src.clone();
+        long[] filled = new long[(w * h + 63) >>> 6];
+        int target = src[row * w + col];
+        int color = c.toRGB();
+
+        PointDeque seeds = new PointDeque();
+        seeds.addLast(row, col);
+
+        while (!seeds.isEmpty()) {
+            int r = seeds.firstRow();
+            int x = seeds.firstCol();
+            seeds.removeFirst();
+
+            int base = r * w;
+            if (isFilled(filled, base + x) || !matches(src[base + x], target, tolerance)) {
+                continue;
+            }
+
+            int left = x;
+            while (left > 0 && !isFilled(filled, base + left - 1)
+                    && matches(src[base + left - 1], target, tolerance)) {
+                left--;
+            }
+            int right = x;
+            while (right < w - 1 && !isFilled(filled, base + right + 1)
+                    && matches(src[base + right + 1], target, tolerance)) {
+                right++;
+            }
+
+            for (int i = base + left; i <= base + right; i++) {
+                filled[i >>> 6] |= 1L << i;
+                dst[i] = color;
+            }
+
+            if (r > 0) {
+                queueRuns(seeds, src, filled, w, r - 1, left, right, target, tolerance);
+            }
+            if (r < h - 1) {
+                queueRuns(seeds, src, filled, w, r + 1, left, right, target, tolerance);
+            }
+        }
+
+        return PixelPicture.fromPacked(w, h, dst);
+    }
+
+    /**
+     * Queues one seed for each run of unfilled, matching pixels in
+     * {@code row} between columns {@code left} and {@code right}.
+     */
+    private static void queueRuns(
+            PointDeque seeds, int[] src, long[] filled, int w,
+            int row, int left, int right, int target, int tolerance
+    ) {
+        int base = row * w;
+        boolean inRun = false;
+        for (int x = left; x <= right; x++) {
+            int i = base + x;
+            boolean open = !isFilled(filled, i) && matches(src[i], target, tolerance);
+            if (open && !inRun) {
+                seeds.addLast(row, x);
+            }
+            inRun = open;
+        }
+    }
+
+    private static boolean isFilled(long[] filled, int i) {
+        return (filled[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static boolean matches(int rgb, int target, int tolerance) {
+        int d = Math.abs(Pixel.red(rgb) - Pixel.red(target))
+                + Math.abs(Pixel.green(rgb) - Pixel.green(target))
+                + Math.abs(Pixel.blue(rgb) - Pixel.blue(target));
+        return d <= tolerance;
+    }
+}
@@ -1,19 +1,22 @@
 package org.cis1200;
 
 import java.awt.BorderLayout;
+import java.awt.Dimension;
 import java.awt.GridLayout;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
-import javax.swing.Box;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.JTextField;
+import javax.swing.JProgressBar;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.MouseInputAdapter;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * The graphical user interface for the Pennstagram project.
@@ -25,14 +28,32 @@ public class GUI implements Runnable {
     private final String defaultImageURL = "images/Italy.png";
     private PixelPicture currentPic = new PixelPicture(defaultImageURL);
 
-    private final Deque<PixelPicture> images = new LinkedList<>();
+    // every version up to the current one, for undo
+    private final UndoHistory history = new UndoHistory();
 
-    private final JLabel imageLabel = new JLabel(currentPic.toImageIcon());
+    private final ImageViewport imageView = new ImageViewport(currentPic);
 
     private final JFrame frame = new JFrame("Pennstagram");
 
-    // update the currently displayed image, saving the old version for undo.
-    private void changeImage(PixelPicture pnew) {
+    // runs manipulations off the event thread; only the latest one counts
+    private final JobRunner jobs = new JobRunner(SwingUtilities::invokeLater);
+    private final JProgressBar progress = new JProgressBar(0, 1000);
+
+    // show a picture, redrawing only the pixels in changed (all of them if
+    // it is null), and the layout only if the size changed
+    private void show(PixelPicture pic, Rectangle changed) {
+        currentPic = pic;
+        Dimension before = imageView.getPreferredSize();
+        imageView.setPicture(pic, changed);
+        if (!imageView.getPreferredSize().equals(before)) {
+            frame.pack();
+        }
+    }
+
+    // update the currently displayed image, saving it for undo. The change
+    // from the current image was worked out on the worker thread, so the
+    // event thread does not scan the pictures.
+    private void changeImage(PixelPicture pnew, UndoHistory.Change change) {
         if (pnew == null) {
             return;
         }
@@ -44,16 +65,78 @@ public class GUI implements Runnable {
                     JOptionPane.ERROR_MESSAGE
             );
         } else {
-            if (currentPic != null) {
-                images.push(currentPic);
+            history.push(pnew, change);
+            show(pnew, change.getBounds());
+        }
+    }
+
+    // start a manipulation of the current picture on the worker thread,
+    // replacing any manipulation still running
+    private void apply(UnaryOperator<PixelPicture> op) {
+        PixelPicture source = currentPic;
+        AtomicReference<UndoHistory.Change> change = new AtomicReference<>();
+        jobs.submit(() -> {
+            PixelPicture result = op.apply(source);
+            if (result != null && result != source) {
+                change.set(UndoHistory.compare(source, result));
             }
-            currentPic = pnew;
-            imageLabel.setIcon(currentPic.toImageIcon());
-            imageLabel.repaint();
-            frame.pack();
+            return result;
+        }, result -> changeImage(result, change.get()), ex -> {
+            String message = ex instanceof UnsupportedOperationException
+                    ? "Make sure to fully implement the Pixel class!"
+                    : "Cannot apply this operation\n" + ex.getMessage();
+            JOptionPane.showMessageDialog(
+                    frame,
+                    message,
+                    "Alert",
+                    JOptionPane.ERROR_MESSAGE
+            );
+        });
+    }
+
+    // choose parameters with sliders, previewing them on a small copy of the
+    // current picture, then apply the manipulation to the whole picture
+    private void preview(
+            String title, LivePreview.Setting[] settings, LivePreview.Operation op
+    ) {
+        UnaryOperator<PixelPicture> chosen = LivePreview.show(
+                frame, title, currentPic, settings, op
+        );
+        if (chosen != null) {
+            apply(chosen);
         }
     }
 
+    // a color multiplier: any number, with the slider from 0 to 2
+    private static LivePreview.Setting colorScale(String label) {
+        return new LivePreview.Setting(
+                label, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 1, 2, 0.01
+        );
+    }
+
+    // the progress bar and a button to cancel the running manipulation
+    private JPanel makeStatusBar() {
+        final JPanel statusBar = new JPanel(new BorderLayout());
+        final JButton cancel = new JButton("Cancel");
+        statusBar.add(progress, BorderLayout.CENTER);
+        statusBar.add(cancel, BorderLayout.LINE_END);
+        progress.setStringPainted(true);
+        progress.setString("");
+
+        cancel.addActionListener(e -> jobs.cancel());
+
+        // poll about 60 times a second rather than have every band of rows
+        // post an event
+        Timer timer = new Timer(16, e -> {
+            boolean busy = jobs.isBusy();
+            progress.setValue(busy ? (int) (jobs.getProgress() * 1000) : 0);
+            progress.setString(busy ? "Working..." : "");
+            cancel.setEnabled(busy);
+        });
+        timer.start();
+        return statusBar;
+    }
+
     /**
      * Construct the "menubar"
      * 
@@ -86,8 +169,11 @@ public class GUI implements Runnable {
             );
             try {
                 if (result != null) {
-                    changeImage(new PixelPicture(result));
-                    images.clear();
+                    PixelPicture loaded = new PixelPicture(result);
+                    jobs.cancel();
+                    history.clear();
+                    history.push(loaded);
+                    show(loaded, null);
                 }
             } catch (RuntimeException ex) {
                 JOptionPane.showMessageDialog(
@@ -119,9 +205,12 @@ public class GUI implements Runnable {
         });
 
         undo.addActionListener(e -> {
-            if (!images.isEmpty()) {
-                currentPic = null;
-                changeImage(images.removeFirst());
+            // the newest version in the history is the one shown
+            if (history.size() > 1) {
+                jobs.cancel();
+                PixelPicture shown = history.undo();
+                PixelPicture back = history.get(0);
+                show(back, PixelPicture.changedBounds(shown, back));
             } else {
                 JOptionPane.showMessageDialog(
                         frame,
@@ -166,51 +255,17 @@ public class GUI implements Runnable {
         toolbar.add(blur);
         toolbar.add(flood);
 
-        border.addActionListener(arg0 -> {
-            PixelPicture pn = SimpleManipulations.border(currentPic, 10, Pixel.BLACK);
-            changeImage(pn);
-        });
-
-        recolor.addActionListener(arg0 -> {
-            double r = 0.0;
-            double g = 0.0;
-            double b = 0.0;
+        border.addActionListener(
+                arg0 -> apply(p -> SimpleManipulations.border(p, 10, Pixel.BLACK))
+        );
 
-            try {
-                JTextField rField = new JTextField(5);
-                JTextField gField = new JTextField(5);
-                JTextField bField = new JTextField(5);
-
-                JPanel myPanel = new JPanel();
-                myPanel.add(new JLabel("R:"));
-                myPanel.add(rField);
-                myPanel.add(Box.createHorizontalStrut(15)); // a spacer
-                myPanel.add(new JLabel("G:"));
-                myPanel.add(gField);
-                myPanel.add(Box.createHorizontalStrut(15)); // a spacer
-                myPanel.add(new JLabel("B:"));
-                myPanel.add(bField);
-
-                int result = JOptionPane.showConfirmDialog(
-                        null, myPanel,
-                        "Please Enter R G B multipliers",
-                        JOptionPane.OK_CANCEL_OPTION
-                );
-                if (result == JOptionPane.OK_OPTION) {
-                    r = Double.parseDouble(rField.getText());
-                    g = Double.parseDouble(gField.getText());
-                    b = Double.parseDouble(bField.getText());
-                    changeImage(SimpleManipulations.scaleColors(currentPic, r, g, b));
-                }
-            } catch (RuntimeException ex) {
-                JOptionPane.showMessageDialog(
-                        frame,
-                        "Cannot parse multipliers\n" + ex.getMessage(),
-                        "Alert",
-                        JOptionPane.ERROR_MESSAGE
-                );
-            }
-        });
+        recolor.addActionListener(arg0 -> preview(
+                "Color scale",
+                new LivePreview.Setting[] {
+                    colorScale("R"), colorScale("G"), colorScale("B")
+                },
+                (v, scale) -> p -> SimpleManipulations.scaleColors(p, v[0], v[1], v[2])
+        ));
 
         blend.addActionListener(e -> {
             String result = JOptionPane.showInputDialog(
@@ -222,10 +277,10 @@ public class GUI implements Runnable {
             );
             try {
                 if (result != null) {
-                    changeImage(
-                            SimpleManipulations.alphaBlend(
+                    apply(
+                            p -> SimpleManipulations.alphaBlend(
                                     0.3,
-                                    currentPic, new PixelPicture(result)
+                                    p, new PixelPicture(result)
                             )
                     );
                 }
@@ -239,20 +294,9 @@ public class GUI implements Runnable {
             }
         });
 
-        rotateCW.addActionListener(e -> {
-            try {
-                changeImage(SimpleManipulations.rotateCW(currentPic));
-            } catch (UnsupportedOperationException ex) {
-                JOptionPane.showMessageDialog(
-                        frame,
-                        "Make sure to fully implement the Pixel class!",
-                        "Alert",
-                        JOptionPane.ERROR_MESSAGE
-                );
-            }
-        });
+        rotateCW.addActionListener(e -> apply(SimpleManipulations::rotateCW));
 
-        rotateCCW.addActionListener(e -> changeImage(SimpleManipulations.rotateCCW(currentPic)));
+        rotateCCW.addActionListener(e -> apply(SimpleManipulations::rotateCCW));
 
         transform.addActionListener(e -> {
             String result = (String) JOptionPane.showInputDialog(
@@ -264,7 +308,10 @@ public class GUI implements Runnable {
                     new String[] {
                         "GrayScaleLuminosity",
                         "ColorInvert",
-                        "GrayScaleAverage"
+                        "GrayScaleAverage",
+                        "Rotate180",
+                        "MirrorHorizontal",
+                        "MirrorVertical"
                     },
                     "GrayScaleLuminosity"
             );
@@ -272,52 +319,32 @@ public class GUI implements Runnable {
                 return;
             }
 
-            PixelPicture pnew = null;
+            UnaryOperator<PixelPicture> op;
             switch (result) {
-                case "ColorInvert" -> pnew = SimpleManipulations.invertColors(currentPic);
-                case "GrayScaleAverage" -> pnew = SimpleManipulations.grayScaleAverage(currentPic);
-                case "GrayScaleLuminosity" -> pnew = SimpleManipulations
-                        .grayScaleLuminosity(currentPic);
-                default -> pnew = null;
+                case "ColorInvert" -> op = SimpleManipulations::invertColors;
+                case "GrayScaleAverage" -> op = SimpleManipulations::grayScaleAverage;
+                case "GrayScaleLuminosity" -> op = SimpleManipulations::grayScaleLuminosity;
+                case "Rotate180" -> op = SimpleManipulations::rotate180;
+                case "MirrorHorizontal" -> op = SimpleManipulations::mirrorHorizontal;
+                case "MirrorVertical" -> op = SimpleManipulations::mirrorVertical;
+                default -> op = null;
             }
 
-            if (pnew != null) {
-                changeImage(pnew);
+            if (op != null) {
+                apply(op);
             }
         });
 
-        vignette.addActionListener(e -> changeImage(SimpleManipulations.vignette(currentPic)));
+        vignette.addActionListener(e -> apply(SimpleManipulations::vignette));
 
-        blur.addActionListener(e -> {
-            try {
-                String result = JOptionPane.showInputDialog(
-                        frame,
-                        "Enter a blur radius, a small integer.",
-                        "Blur radius",
-                        JOptionPane.PLAIN_MESSAGE
-                );
-                if (result != null) {
-                    int radius = Integer.parseInt(result);
-                    if (radius <= 0 || radius >= 20) {
-                        JOptionPane.showMessageDialog(
-                                frame,
-                                "Blur radius must be > 0 and < 20",
-                                "Alert",
-                                JOptionPane.ERROR_MESSAGE
-                        );
-                        return;
-                    }
-                    changeImage(AdvancedManipulations.blur(currentPic, radius));
-                }
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(
-                        frame,
-                        "Invalid number",
-                        "Alert",
-                        JOptionPane.ERROR_MESSAGE
-                );
-            }
-        });
+        blur.addActionListener(e -> preview(
+                "Blur",
+                new LivePreview.Setting[] { new LivePreview.Setting("Radius", 1, 19, 3, 19, 1) },
+                // the proxy is smaller, so its blur radius is too
+                (v, scale) -> p -> AdvancedManipulations.blur(
+                        p, Math.max(1, (int) Math.round(v[0] * scale))
+                )
+        ));
 
         flood.addActionListener(
                 e -> JOptionPane.showMessageDialog(
@@ -328,68 +355,22 @@ public class GUI implements Runnable {
                 )
         );
 
-        contrast.addActionListener(e -> {
-            String result = "";
-            try {
-                result = JOptionPane.showInputDialog(
-                        frame,
-                        """
-                                Enter a contrast multiplier.
-                                The maximum range is 0 to 255,
-                                although values above 16 look similar for this image.
-                                Usually contrast values are small -- between 0.5 and 1.5.""",
-                        "Contrast multiplier",
-                        JOptionPane.PLAIN_MESSAGE
-                );
-                if (result != null) {
-                    double d = Double.parseDouble(result);
-                    if (d >= 0.0 && d <= 255.0) {
-                        changeImage(AdvancedManipulations.adjustContrast(currentPic, d));
-                    } else {
-                        throw new NumberFormatException();
-                    }
-                }
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(
-                        frame,
-                        "Invalid number " + result,
-                        "Alert",
-                        JOptionPane.ERROR_MESSAGE
-                );
-            }
-        });
-
-        palette.addActionListener(e -> {
-            try {
-                String result = JOptionPane.showInputDialog(
-                        frame,
-                        "Enter the number of colors to which you want to reduce the palette.",
-                        "Palette size",
-                        JOptionPane.PLAIN_MESSAGE
-                );
-                if (result != null) {
-                    int i = Integer.parseInt(result);
-                    if (i < 1) {
-                        JOptionPane.showMessageDialog(
-                                frame,
-                                "Expecting a number greater than 0.",
-                                "Alert",
-                                JOptionPane.ERROR_MESSAGE
-                        );
-
-                    } else {
-                        changeImage(AdvancedManipulations.reducePalette(currentPic, i));
-                    }
-                }
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(
-                        frame,
-                        "Invalid number",
-                        "Alert",
-                        JOptionPane.ERROR_MESSAGE
-                );
-            }
-        });
+        contrast.addActionListener(e -> preview(
+                "Contrast",
+                // values above a few look alike, so the slider stops at 4
+                new LivePreview.Setting[] {
+                    new LivePreview.Setting("Multiplier", 0, 255, 1, 4, 0.01)
+                },
+                (v, scale) -> p -> AdvancedManipulations.adjustContrast(p, v[0])
+        ));
+
+        palette.addActionListener(e -> preview(
+                "Reduce palette",
+                new LivePreview.Setting[] {
+                    new LivePreview.Setting("Colors", 1, Integer.MAX_VALUE, 64, 512, 1)
+                },
+                (v, scale) -> p -> AdvancedManipulations.reducePalette(p, (int) v[0])
+        ));
 
         return toolbar;
 
@@ -404,36 +385,36 @@ public class GUI implements Runnable {
 
         JButton eighteenNinety = new JButton("1890s");
         effectBar.add(eighteenNinety);
-        eighteenNinety.addActionListener(arg0 -> changeImage(Effects.eighteenNinety(currentPic)));
+        eighteenNinety.addActionListener(arg0 -> apply(Effects::eighteenNinety));
         JButton pinHole = new JButton("Pin Hole");
         effectBar.add(pinHole);
-        pinHole.addActionListener(arg0 -> changeImage(Effects.pinHole(currentPic)));
+        pinHole.addActionListener(arg0 -> apply(Effects::pinHole));
 
         JButton zombie = new JButton("Zombie");
         effectBar.add(zombie);
-        zombie.addActionListener(arg0 -> changeImage(Effects.zombie(currentPic)));
+        zombie.addActionListener(arg0 -> apply(Effects::zombie));
 
         JButton plastic = new JButton("Plastic");
         effectBar.add(plastic);
-        plastic.addActionListener(e -> changeImage(Effects.plastic(currentPic)));
+        plastic.addActionListener(e -> apply(Effects::plastic));
 
         JButton peaches = new JButton("Peaches");
         effectBar.add(peaches);
-        peaches.addActionListener(e -> changeImage(Effects.peaches(currentPic)));
+        peaches.addActionListener(e -> apply(Effects::peaches));
 
         JButton custom = new JButton("Custom");
         effectBar.add(custom);
-        custom.addActionListener(e -> changeImage(Effects.custom(currentPic)));
+        custom.addActionListener(e -> apply(Effects::custom));
 
         return effectBar;
     }
 
     public void run() {
+        history.push(currentPic);
         frame.setLayout(new BorderLayout());
 
         final JPanel menuBar = makeMenuBar();
         final JPanel toolBar = makeToolBar();
-        final JPanel imageArea = new JPanel();
         final JPanel effectBar = makeEffectBar();
 
         final JPanel rightSide = new JPanel();
@@ -442,18 +423,24 @@ public class GUI implements Runnable {
         rightSide.add(effectBar);
 
         frame.add(toolBar, BorderLayout.LINE_START);
-        frame.add(imageArea, BorderLayout.CENTER);
+        frame.add(imageView, BorderLayout.CENTER);
         frame.add(rightSide, BorderLayout.LINE_END);
+        frame.add(makeStatusBar(), BorderLayout.PAGE_END);
 
-        // Add mouse listener to the image itself for flood-fill
-        imageArea.add(imageLabel);
-        imageLabel.addMouseListener(new MouseInputAdapter() {
+        // Add mouse listener to the image itself for flood-fill; the wheel
+        // zooms and dragging pans
+        imageView.setToolTipText("Click to flood, scroll to zoom, drag to pan");
+        imageView.addMouseListener(new MouseInputAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                changeImage(
-                        AdvancedManipulations.flood(
-                                currentPic,
-                                new Pixel(255, 0, 0), e.getY(), e.getX()
+                Point at = imageView.toPicture(e.getPoint());
+                if (at == null) {
+                    return;
+                }
+                apply(
+                        p -> AdvancedManipulations.flood(
+                                p,
+                                new Pixel(255, 0, 0), at.y, at.x
                         )
                 );
             }
@@ -466,6 +453,8 @@ public class GUI implements Runnable {
     }
 
     public static void main(String[] args) {
+        Parallel.setEnabled(true);
+        PixelPicture.setLazyViews(true);
         SwingUtilities.invokeLater(new GUI());
     }
 
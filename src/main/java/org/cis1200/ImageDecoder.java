@@ -0,0 +1,143 @@
+package org.cis1200;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decodes images with ImageIO into TYPE_INT_RGB pictures, without the AWT
+ * Toolkit, so it works in headless mode.
+ * <p>
+ * When the reader can decode straight into an int raster, the decoded
+ * array is used as it is: a TYPE_INT_RGB destination is returned directly,
+ * and a TYPE_INT_ARGB one is reused in place once its alpha bytes are
+ * cleared, provided every pixel is opaque. Otherwise the decoded image is drawn onto a black
+ * TYPE_INT_RGB image, which is what loading through an ImageIcon did, so
+ * transparent pixels come out the same as before.
+ */
+public class ImageDecoder {
+
+    private static final int[] RGB_MASKS = { 0xff0000, 0x00ff00, 0x0000ff };
+    private static final DirectColorModel RGB_MODEL = new DirectColorModel(
+            24, RGB_MASKS[0], RGB_MASKS[1], RGB_MASKS[2]
+    );
+
+    private ImageDecoder() {
+    }
+
+    /**
+     * Decodes the first image of a stream.
+     *
+     * @param in          the stream to decode
+     * @param subsampling keep every {@code subsampling}-th pixel in each
+     *                    direction; 1 keeps them all
+     * @return the decoded image, of type TYPE_INT_RGB
+     * @throws IOException if no reader understands the stream or it cannot be
+     *                     decoded
+     */
+    static BufferedImage read(ImageInputStream in, int subsampling) throws IOException {
+        if (subsampling < 1) {
+            throw new IllegalArgumentException("subsampling must be positive, got " + subsampling);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            throw new IOException("unknown image format");
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(in, true, true);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            return read(reader, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Decodes the first image of a reader that already has its input.
+     *
+     * @param reader the reader
+     * @param param  how to read, for example a source region; its
+     *               destination type is replaced
+     * @return the decoded image, of type TYPE_INT_RGB
+     * @throws IOException if the image cannot be decoded
+     */
+    static BufferedImage read(ImageReader reader, ImageReadParam param) throws IOException {
+        ImageTypeSpecifier rgb = null;
+        ImageTypeSpecifier argb = null;
+        for (Iterator<ImageTypeSpecifier> it = reader.getImageTypes(0); it.hasNext();) {
+            ImageTypeSpecifier spec = it.next();
+            if (spec.getBufferedImageType() == BufferedImage.TYPE_INT_RGB) {
+                rgb = spec;
+            } else if (spec.getBufferedImageType() == BufferedImage.TYPE_INT_ARGB) {
+                argb = spec;
+            }
+        }
+
+        if (rgb != null) {
+            param.setDestinationType(rgb);
+            return reader.read(0, param);
+        }
+
+        if (argb != null) {
+            param.setDestinationType(argb);
+        }
+        BufferedImage decoded = reader.read(0, param);
+        if (decoded.getType() == BufferedImage.TYPE_INT_ARGB) {
+            int[] data = ((DataBufferInt) decoded.getRaster().getDataBuffer()).getData();
+            if (clearOpaqueAlpha(data)) {
+                // reinterpret the same array as TYPE_INT_RGB
+                WritableRaster raster = Raster.createPackedRaster(
+                        new DataBufferInt(data, data.length),
+                        decoded.getWidth(), decoded.getHeight(), decoded.getWidth(),
+                        RGB_MASKS, null
+                );
+                return new BufferedImage(RGB_MODEL, raster, false, null);
+            }
+        }
+
+        BufferedImage out = new BufferedImage(
+                decoded.getWidth(), decoded.getHeight(), BufferedImage.TYPE_INT_RGB
+        );
+        Graphics g = out.getGraphics();
+        g.drawImage(decoded, 0, 0, null);
+        g.dispose();
+        // some blits, such as from an indexed image, copy the source's alpha
+        // byte into the ignored top byte of each pixel
+        int[] data = ((DataBufferInt) out.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < data.length; i++) {
+            data[i] &= 0xffffff;
+        }
+        return out;
+    }
+
+    /**
+     * Clears the alpha bytes of an ARGB raster if every pixel is opaque.
+     *
+     * @return true if the alpha bytes were cleared, false (leaving the
+     *         raster unchanged) if some pixel is not opaque
+     */
+    private static boolean clearOpaqueAlpha(int[] argb) {
+        for (int p : argb) {
+            if (p >>> 24 != 0xff) {
+                return false;
+            }
+        }
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] &= 0xffffff;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,123 @@
+package org.cis1200;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.image.VolatileImage;
+
+import javax.swing.JComponent;
+
+/**
+ * Displays a picture at its own size.
+ * <p>
+ * Pictures are immutable, so the view draws straight from the picture's
+ * own raster rather than from a copy. To make repainting cheap, the
+ * picture is kept in a VolatileImage, which usually lives in video memory.
+ * When the picture is replaced by one of the same size, only the rectangle
+ * of pixels that changed is copied into it and repainted. A flood fill,
+ * for example, redraws only the area it filled.
+ */
+public class ImageView extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+
+    private PixelPicture picture;
+
+    // the picture, as last copied to the screen's format
+    private VolatileImage cache;
+
+    // the part of the cache that is out of date, or null if none is
+    private Rectangle stale;
+
+    /**
+     * Creates a view.
+     *
+     * @param picture the picture to show
+     */
+    public ImageView(PixelPicture picture) {
+        setPicture(picture);
+    }
+
+    /**
+     * @return the picture shown
+     */
+    public PixelPicture getPicture() {
+        return picture;
+    }
+
+    /**
+     * Shows another picture. If it is the same size as the current one,
+     * only the pixels that differ are redrawn.
+     *
+     * @param pic the picture to show
+     */
+    public void setPicture(PixelPicture pic) {
+        setPicture(pic, picture == null ? null : PixelPicture.changedBounds(picture, pic));
+    }
+
+    /**
+     * Shows another picture, already compared with the current one, for
+     * example by {@link UndoHistory#compare(PixelPicture, PixelPicture)} on
+     * another thread.
+     *
+     * @param pic     the picture to show
+     * @param changed the smallest rectangle holding every pixel that
+     *                differs from the current picture, or null to redraw
+     *                everything
+     */
+    public void setPicture(PixelPicture pic, Rectangle changed) {
+        picture = pic;
+        if (changed == null) {
+            stale = new Rectangle(0, 0, pic.getWidth(), pic.getHeight());
+            revalidate();
+            repaint();
+        } else if (!changed.isEmpty()) {
+            stale = stale == null ? changed : stale.union(changed);
+            repaint(changed);
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(picture.getWidth(), picture.getHeight());
+    }
+
+    @Override
+    public Dimension getMinimumSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null) {
+            g.drawImage(picture.image(), 0, 0, null);
+            return;
+        }
+        int w = picture.getWidth();
+        int h = picture.getHeight();
+        do {
+            int state = cache == null ? VolatileImage.IMAGE_INCOMPATIBLE : cache.validate(gc);
+            if (state == VolatileImage.IMAGE_INCOMPATIBLE
+                    || cache.getWidth() != w || cache.getHeight() != h) {
+                if (cache != null) {
+                    cache.flush();
+                }
+                cache = gc.createCompatibleVolatileImage(w, h);
+                stale = new Rectangle(0, 0, w, h);
+            } else if (state == VolatileImage.IMAGE_RESTORED) {
+                stale = new Rectangle(0, 0, w, h);
+            }
+            if (stale != null) {
+                Graphics2D cg = cache.createGraphics();
+                cg.setClip(stale);
+                cg.drawImage(picture.image(), 0, 0, null);
+                cg.dispose();
+                stale = null;
+            }
+            g.drawImage(cache, 0, 0, null);
+        } while (cache.contentsLost());
+    }
+}
@@ -0,0 +1,406 @@
+package org.cis1200;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+/**
+ * Shows a picture that can be zoomed with the mouse wheel and panned by
+ * dragging, however large the picture is.
+ * <p>
+ * The picture is drawn from a {@link TilePyramid}: at each zoom the view
+ * uses the smallest level that is still at least as detailed as the
+ * screen, and draws only the tiles of that level that are visible. Zoomed
+ * out, a gigapixel picture therefore costs a few hundred thousand pixels
+ * a frame, and tiles already made are reused while panning.
+ * <p>
+ * Painting never makes tiles. A visible tile that is not made yet is drawn
+ * from the nearest coarser tile that is, stretched, or left as background,
+ * and is made on a background thread, after which the view repaints.
+ * Making a tile of a coarse level still means shrinking the part of the
+ * picture under it, so the first view of a whole large picture takes a
+ * pass over all of it, but off the event thread. Only the tiles wanted by
+ * the latest paint are made, so tiles scrolled past before they were
+ * reached are skipped. A tile that cannot be made, for want of memory
+ * say, is not asked for again until the picture changes.
+ * <p>
+ * Like {@link ImageView}, the view draws from immutable pictures without
+ * copying them, and a new picture of the same size only remakes and
+ * repaints the tiles over the pixels that changed. Mouse positions are
+ * mapped to pixels of the picture with {@link #toPicture(Point)}.
+ */
+public class ImageViewport extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+    private static final int TILES_PER_LEVEL = 128;
+    private static final double MAX_ZOOM = 32;
+    private static final double WHEEL_STEP = 1.25;
+
+    // the largest size asked of the layout, so huge pictures still fit
+    private static final int MAX_PREFERRED_WIDTH = 1024;
+    private static final int MAX_PREFERRED_HEIGHT = 768;
+
+    // makes tiles for every view, one at a time
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "tile-builder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private TilePyramid pyramid;
+
+    // the missing tiles wanted by the latest paint, the next one last,
+    // whether a task on BUILDER is making them, and the tiles of wantedFrom
+    // that could not be made, which are not asked for again
+    private final Object wantedLock = new Object();
+    private List<long[]> wanted = new ArrayList<>();
+    private TilePyramid wantedFrom;
+    private boolean building = false;
+    private final Set<Long> failed = new HashSet<>();
+
+    // screen pixels per picture pixel
+    private double zoom = 1;
+
+    // the point of the picture at the top-left corner of the view
+    private double originX = 0;
+    private double originY = 0;
+
+    /**
+     * Creates a view at 1:1, showing the top-left corner of the picture.
+     *
+     * @param picture the picture to show
+     */
+    public ImageViewport(PixelPicture picture) {
+        setPicture(picture);
+        setBackground(Color.DARK_GRAY);
+        setOpaque(true);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            private Point last;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                last = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (last != null) {
+                    panBy(e.getX() - last.x, e.getY() - last.y);
+                    last = e.getPoint();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoomAt(e.getPoint(), Math.pow(WHEEL_STEP, -e.getPreciseWheelRotation()));
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * @return the picture shown
+     */
+    public PixelPicture getPicture() {
+        return pyramid.getBase();
+    }
+
+    /**
+     * Shows another picture. If it is the same size as the current one, the
+     * zoom and position are kept and only the pixels that differ are
+     * redrawn; otherwise the view returns to 1:1 at the top-left corner.
+     *
+     * @param pic the picture to show
+     */
+    public void setPicture(PixelPicture pic) {
+        Rectangle changed = pyramid == null ? null
+                : PixelPicture.changedBounds(pyramid.getBase(), pic);
+        setPicture(pic, changed);
+    }
+
+    /**
+     * Shows another picture, already compared with the current one, for
+     * example by {@link UndoHistory#compare(PixelPicture, PixelPicture)} on
+     * another thread.
+     *
+     * @param pic     the picture to show
+     * @param changed the smallest rectangle holding every pixel that
+     *                differs from the current picture, or null if the
+     *                pictures differ in size, which returns the view to 1:1
+     */
+    public void setPicture(PixelPicture pic, Rectangle changed) {
+        if (changed == null) {
+            pyramid = new TilePyramid(pic, TILES_PER_LEVEL);
+            // tiles of the old picture still wanted are no use now
+            want(new ArrayList<>());
+            zoom = 1;
+            originX = 0;
+            originY = 0;
+            revalidate();
+            repaint();
+        } else {
+            pyramid.update(pic, changed);
+            synchronized (wantedLock) {
+                // the tiles may be made from the new pixels
+                failed.clear();
+            }
+            if (!changed.isEmpty()) {
+                repaint(toScreen(changed));
+            }
+        }
+    }
+
+    /**
+     * @return the zoom, in screen pixels per picture pixel
+     */
+    public double getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Zooms in or out, keeping the picture pixel under a point of the view
+     * where it is.
+     *
+     * @param p      the point of the view to zoom about
+     * @param factor how much to multiply the zoom by
+     */
+    public void zoomAt(Point p, double factor) {
+        // zoomed out no further than the smallest level, 1 tile across
+        double min = Math.min(1.0, 1.0 / (1 << (pyramid.getLevels() - 1)));
+        double next = Math.max(min, Math.min(MAX_ZOOM, zoom * factor));
+        double px = originX + p.x / zoom;
+        double py = originY + p.y / zoom;
+        originX = px - p.x / next;
+        originY = py - p.y / next;
+        zoom = next;
+        repaint();
+    }
+
+    /**
+     * Moves the picture across the view.
+     *
+     * @param dx how far to move it right, in screen pixels
+     * @param dy how far to move it down, in screen pixels
+     */
+    public void panBy(int dx, int dy) {
+        originX -= dx / zoom;
+        originY -= dy / zoom;
+        repaint();
+    }
+
+    /**
+     * Finds the pixel of the picture shown at a point of the view.
+     *
+     * @param p the point, in the view's coordinates
+     * @return the pixel's column and row, or null if the point is off the
+     *         picture
+     */
+    public Point toPicture(Point p) {
+        int col = (int) Math.floor(originX + p.x / zoom);
+        int row = (int) Math.floor(originY + p.y / zoom);
+        PixelPicture pic = pyramid.getBase();
+        if (col < 0 || row < 0 || col >= pic.getWidth() || row >= pic.getHeight()) {
+            return null;
+        }
+        return new Point(col, row);
+    }
+
+    // the view pixels covering a rectangle of picture pixels
+    private Rectangle toScreen(Rectangle r) {
+        int x0 = (int) Math.floor((r.x - originX) * zoom);
+        int y0 = (int) Math.floor((r.y - originY) * zoom);
+        int x1 = (int) Math.ceil((r.x + r.width - originX) * zoom);
+        int y1 = (int) Math.ceil((r.y + r.height - originY) * zoom);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        PixelPicture pic = pyramid.getBase();
+        return new Dimension(
+                Math.min(MAX_PREFERRED_WIDTH, pic.getWidth()),
+                Math.min(MAX_PREFERRED_HEIGHT, pic.getHeight())
+        );
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        // the most shrunk level with at least one pixel per screen pixel
+        int level = 0;
+        while (level + 1 < pyramid.getLevels() && zoom * (1 << (level + 1)) <= 1) {
+            level++;
+        }
+        int scale = 1 << level;
+        int lw = pyramid.getWidth(level);
+        int lh = pyramid.getHeight(level);
+
+        // the tiles of that level under the clip
+        double span = (double) TilePyramid.TILE * scale;
+        int tx0 = Math.max(0, (int) Math.floor((originX + clip.x / zoom) / span));
+        int ty0 = Math.max(0, (int) Math.floor((originY + clip.y / zoom) / span));
+        int tx1 = Math.min(
+                (lw - 1) / TilePyramid.TILE,
+                (int) Math.floor((originX + (clip.x + clip.width) / zoom) / span)
+        );
+        int ty1 = Math.min(
+                (lh - 1) / TilePyramid.TILE,
+                (int) Math.floor((originY + (clip.y + clip.height) / zoom) / span)
+        );
+
+        List<long[]> missing = new ArrayList<>();
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                // tile edges in picture pixels, rounded to screen pixels the
+                // same way for neighbouring tiles so that no gaps open
+                double px = tx * span;
+                double py = ty * span;
+                int x0 = (int) Math.round((px - originX) * zoom);
+                int y0 = (int) Math.round((py - originY) * zoom);
+                int tw = Math.min(TilePyramid.TILE, lw - tx * TilePyramid.TILE);
+                int th = Math.min(TilePyramid.TILE, lh - ty * TilePyramid.TILE);
+                int x1 = (int) Math.round((px + tw * scale - originX) * zoom);
+                int y1 = (int) Math.round((py + th * scale - originY) * zoom);
+
+                PixelPicture tile = pyramid.cachedTile(level, tx, ty);
+                if (tile != null) {
+                    g.drawImage(tile.image(), x0, y0, x1, y1, 0, 0, tw, th, null);
+                    continue;
+                }
+                missing.add(new long[] { level, tx, ty });
+                drawCoarser(g, level, tx, ty, tw, th, x0, y0, x1, y1);
+            }
+        }
+        // the tiles nearest the top-left are made first
+        Collections.reverse(missing);
+        want(missing);
+    }
+
+    // draws the part of the nearest coarser kept tile that covers a tile
+    private void drawCoarser(
+            Graphics g, int level, int tx, int ty, int tw, int th, int x0, int y0, int x1, int y1
+    ) {
+        int tile = TilePyramid.TILE;
+        for (int up = 1; level + up < pyramid.getLevels(); up++) {
+            int cx = tx >> up;
+            int cy = ty >> up;
+            PixelPicture coarse = pyramid.cachedTile(level + up, cx, cy);
+            if (coarse == null) {
+                continue;
+            }
+            // the tile's pixels, in the coarse tile's pixels
+            double f = 1.0 / (1 << up);
+            int sx0 = (int) Math.floor(tx * tile * f) - cx * tile;
+            int sy0 = (int) Math.floor(ty * tile * f) - cy * tile;
+            int sx1 = (int) Math.ceil((tx * tile + tw) * f) - cx * tile;
+            int sy1 = (int) Math.ceil((ty * tile + th) * f) - cy * tile;
+            sx1 = Math.min(coarse.getWidth(), sx1);
+            sy1 = Math.min(coarse.getHeight(), sy1);
+            g.drawImage(coarse.image(), x0, y0, x1, y1, sx0, sy0, sx1, sy1, null);
+            return;
+        }
+    }
+
+    // asks for tiles to be made, in place of any asked for before
+    private void want(List<long[]> tiles) {
+        synchronized (wantedLock) {
+            if (wantedFrom != pyramid) {
+                failed.clear();
+            }
+            tiles.removeIf(t -> failed.contains(key(t)));
+            wanted = tiles;
+            wantedFrom = pyramid;
+            if (building || tiles.isEmpty()) {
+                return;
+            }
+            building = true;
+        }
+        BUILDER.execute(this::build);
+    }
+
+    // a tile's level, column and row as one number
+    private static long key(long[] tile) {
+        return tile[0] << 56 | tile[1] << 28 | tile[2];
+    }
+
+    private void build() {
+        boolean finished = false;
+        try {
+            while (true) {
+                TilePyramid from;
+                long[] next;
+                synchronized (wantedLock) {
+                    if (wanted.isEmpty()) {
+                        // in the same lock as the check, so that tiles
+                        // wanted meanwhile start another task
+                        building = false;
+                        finished = true;
+                        return;
+                    }
+                    from = wantedFrom;
+                    next = wanted.remove(wanted.size() - 1);
+                }
+                try {
+                    from.tile((int) next[0], (int) next[1], (int) next[2]);
+                } catch (RuntimeException | Error e) {
+                    // the tile stays drawn from a coarser one; an Error,
+                    // likely running out of memory, also stops this task
+                    synchronized (wantedLock) {
+                        if (from == wantedFrom) {
+                            failed.add(key(next));
+                        }
+                    }
+                    if (e instanceof Error) {
+                        throw e;
+                    }
+                    continue;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (pyramid == from) {
+                        repaint();
+                    }
+                });
+            }
+        } finally {
+            if (!finished) {
+                // the next paint starts another task
+                synchronized (wantedLock) {
+                    building = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether tiles are being made for the view
+     */
+    boolean isBuilding() {
+        synchronized (wantedLock) {
+            return building;
+        }
+    }
+}
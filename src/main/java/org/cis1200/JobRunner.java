@@ -0,0 +1,126 @@
+package org.cis1200;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs manipulations on a worker thread, one at a time, so that the thread
+ * that asks for them (the Swing event thread) never waits.
+ * <p>
+ * Only the latest job matters: submitting a job cancels the one before it,
+ * and the result of a job that was cancelled or replaced is never
+ * delivered, even if it was already computed. Jobs run under a
+ * {@link Parallel.Monitor}, which stops them between bands of rows and
+ * reports their progress; the manipulations themselves still split their
+ * rows across the {@link Parallel} pool.
+ * <p>
+ * Results and failures are handed to the callbacks through the Executor
+ * given to the constructor, for example {@code SwingUtilities::invokeLater}.
+ * Jobs should be submitted and cancelled from that executor's thread, so
+ * that a callback never runs for a job cancelled before it.
+ */
+public class JobRunner {
+
+    private final Executor callbacks;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "job-runner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private long generation = 0;
+    private Parallel.Monitor current;
+
+    /**
+     * Creates a runner.
+     *
+     * @param callbacks runs the result and failure callbacks
+     */
+    public JobRunner(Executor callbacks) {
+        this.callbacks = callbacks;
+    }
+
+    /**
+     * Starts a job, cancelling any job still running.
+     *
+     * @param job     computes the new picture, on the worker thread
+     * @param onDone  receives the picture, unless the job is cancelled or
+     *                replaced first
+     * @param onError receives what the job threw, Errors such as running
+     *                out of memory included, unless the job is cancelled
+     *                or replaced first
+     */
+    public synchronized void submit(
+            Supplier<PixelPicture> job,
+            Consumer<PixelPicture> onDone,
+            Consumer<Throwable> onError
+    ) {
+        cancel();
+        long gen = generation;
+        Parallel.Monitor monitor = new Parallel.Monitor();
+        current = monitor;
+        worker.execute(() -> {
+            if (monitor.isCancelled()) {
+                return;
+            }
+            try {
+                PixelPicture result = Parallel.monitor(monitor, () -> {
+                    PixelPicture pic = job.get();
+                    // compute any lazy view here, not on the caller's thread
+                    pic.packed();
+                    return pic;
+                });
+                deliver(gen, () -> onDone.accept(result));
+            } catch (CancellationException e) {
+                // replaced by a newer job; nobody is waiting for this one
+            } catch (Throwable e) {
+                // delivering it also marks the job finished, so a failure
+                // never leaves the runner busy
+                deliver(gen, () -> onError.accept(e));
+            }
+        });
+    }
+
+    /**
+     * Cancels the running job, if any. Its callbacks will not run.
+     */
+    public synchronized void cancel() {
+        generation++;
+        if (current != null) {
+            current.cancel();
+            current = null;
+        }
+    }
+
+    /**
+     * @return whether a job has been submitted and has neither finished nor
+     *         been cancelled
+     */
+    public synchronized boolean isBusy() {
+        return current != null;
+    }
+
+    /**
+     * @return the progress of the current pass of the running job, from 0
+     *         to 1, or 0 if there is none
+     */
+    public synchronized double getProgress() {
+        return current == null ? 0 : current.getProgress();
+    }
+
+    private void deliver(long gen, Runnable callback) {
+        callbacks.execute(() -> {
+            synchronized (this) {
+                if (gen != generation) {
+                    return;
+                }
+                current = null;
+            }
+            callback.run();
+        });
+    }
+}
@@ -0,0 +1,277 @@
+package org.cis1200;
+
+import java.awt.BorderLayout;
+import java.awt.Frame;
+import java.awt.GridLayout;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.DefaultFormatter;
+
+/**
+ * A dialog for choosing the parameters of a manipulation while watching
+ * their effect.
+ * <p>
+ * Each parameter has a slider over the values usually wanted and a field
+ * next to it for typing any value the manipulation accepts. Changing
+ * either applies the manipulation to a proxy: a copy of the
+ * picture shrunk so that its longer side is at most {@link #PROXY_SIZE}
+ * pixels, which takes a small fraction of the time of the whole picture.
+ * The preview waits until the values have been still for a moment, and a
+ * newer preview replaces one still being computed, so dragging a slider
+ * never queues up work. The full-size picture is only computed once the
+ * user presses OK, by the caller.
+ */
+public class LivePreview {
+
+    /** The longest side of a proxy, in pixels. */
+    public static final int PROXY_SIZE = 512;
+
+    // how long the values must be still before a preview is computed
+    private static final int DEBOUNCE_MILLIS = 60;
+
+    /**
+     * Builds a manipulation from the values chosen.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * @param values the values, in the order the settings were given
+         * @param scale  the size of the picture the manipulation will be
+         *               applied to, relative to the full picture; 1 for the
+         *               full picture. Parameters measured in pixels, such
+         *               as a blur radius, should be scaled by it.
+         * @return the manipulation
+         */
+        UnaryOperator<PixelPicture> make(double[] values, double scale);
+    }
+
+    /**
+     * A parameter chosen in a preview dialog.
+     */
+    public static final class Setting {
+        private final String label;
+        private final double min;
+        private final double max;
+        private final double start;
+        private final double sliderMax;
+        private final double step;
+
+        /**
+         * @param label     what the parameter is
+         * @param min       the smallest value allowed, or negative infinity
+         * @param max       the largest value allowed, or positive infinity
+         * @param start     the value to start at
+         * @param sliderMax the value at the right end of the slider; the
+         *                  left end is {@code min}, or 0 if there is no
+         *                  smallest value
+         * @param step      the slider's step, 1 or 1/n for a whole n; with
+         *                  1, only whole numbers are chosen
+         * @throws IllegalArgumentException if the values are out of order
+         */
+        public Setting(
+                String label, double min, double max, double start, double sliderMax,
+                double step
+        ) {
+            double low = Double.isInfinite(min) ? 0 : min;
+            if (!(min <= start && start <= max && low < sliderMax && sliderMax <= max)
+                    || !(step > 0 && step <= 1)) {
+                throw new IllegalArgumentException("bad setting for " + label);
+            }
+            this.label = label;
+            this.min = min;
+            this.max = max;
+            this.start = start;
+            this.sliderMax = sliderMax;
+            this.step = step;
+        }
+    }
+
+    /**
+     * The slider and field for a setting, kept in step with each other.
+     */
+    static final class Control {
+        final JSlider slider;
+        final JSpinner field;
+        private final long ticksPerUnit;
+        private boolean syncing = false;
+
+        Control(Setting s) {
+            ticksPerUnit = Math.round(1 / s.step);
+            double low = Double.isInfinite(s.min) ? 0 : s.min;
+            slider = new JSlider(ticks(low), ticks(s.sliderMax));
+            slider.setMajorTickSpacing((slider.getMaximum() - slider.getMinimum()) / 4);
+            slider.setPaintTicks(true);
+            field = new JSpinner(new SpinnerNumberModel(
+                    Double.valueOf(s.start),
+                    Double.isInfinite(s.min) ? null : Double.valueOf(s.min),
+                    Double.isInfinite(s.max) ? null : Double.valueOf(s.max),
+                    Double.valueOf(s.step)
+            ));
+            field.setEditor(new JSpinner.NumberEditor(field, s.step == 1 ? "0" : "0.0##"));
+            // typing a number updates the preview without pressing enter
+            JSpinner.DefaultEditor editor = (JSpinner.DefaultEditor) field.getEditor();
+            ((DefaultFormatter) editor.getTextField().getFormatter()).setCommitsOnValidEdit(true);
+            slider.setValue(ticks(s.start));
+
+            slider.addChangeListener(e -> sync(() -> field.setValue(
+                    slider.getValue() / (double) ticksPerUnit
+            )));
+            field.addChangeListener(e -> sync(() -> slider.setValue(ticks(getValue()))));
+        }
+
+        // the slider position nearest a value, at an end if it is past one
+        private int ticks(double value) {
+            double t = value * ticksPerUnit;
+            if (slider != null) {
+                t = Math.max(slider.getMinimum(), Math.min(slider.getMaximum(), t));
+            }
+            return (int) Math.round(t);
+        }
+
+        private void sync(Runnable r) {
+            if (!syncing) {
+                syncing = true;
+                try {
+                    r.run();
+                } finally {
+                    syncing = false;
+                }
+            }
+        }
+
+        /**
+         * @return the value in the field, rounded if whole numbers are
+         *         wanted
+         */
+        double getValue() {
+            double v = ((Number) field.getValue()).doubleValue();
+            return ticksPerUnit == 1 ? Math.rint(v) : v;
+        }
+    }
+
+    // computes previews; shared by all dialogs, only one of which is open
+    private static final JobRunner JOBS = new JobRunner(SwingUtilities::invokeLater);
+
+    // the most recent proxy, reused while the same picture is previewed
+    private static PixelPicture proxySource;
+    private static PixelPicture proxy;
+
+    private LivePreview() {
+    }
+
+    /**
+     * Gets a copy of a picture whose longer side is at most
+     * {@link #PROXY_SIZE}, each of its pixels the average of a square of
+     * pixels of the picture. The last proxy made is remembered.
+     *
+     * @param pic the full picture
+     * @return the proxy, or {@code pic} itself if it is small enough
+     */
+    public static synchronized PixelPicture proxy(PixelPicture pic) {
+        if (pic != proxySource) {
+            int longest = Math.max(pic.getWidth(), pic.getHeight());
+            int factor = (longest + PROXY_SIZE - 1) / PROXY_SIZE;
+            proxy = factor <= 1 ? pic : PackedKernels.downscale(pic, factor);
+            proxySource = pic;
+        }
+        return proxy;
+    }
+
+    /**
+     * Shows a modal dialog with a slider and field for each parameter and a
+     * preview of their effect on a picture.
+     *
+     * @param owner    the frame the dialog belongs to
+     * @param title    the title of the dialog
+     * @param pic      the picture to preview the manipulation on
+     * @param settings the parameters
+     * @param op       builds the manipulation from the values
+     * @return the manipulation for the full picture with the values chosen,
+     *         or null if the dialog was cancelled
+     */
+    public static UnaryOperator<PixelPicture> show(
+            Frame owner, String title, PixelPicture pic,
+            Setting[] settings, Operation op
+    ) {
+        PixelPicture small = proxy(pic);
+        double scale = (double) small.getWidth() / pic.getWidth();
+
+        JDialog dialog = new JDialog(owner, title, true);
+        ImageView image = new ImageView(small);
+        JLabel status = new JLabel(" ");
+        JPanel controls = new JPanel(new GridLayout(0, 3));
+        Control[] chosenValues = new Control[settings.length];
+        for (int i = 0; i < settings.length; i++) {
+            chosenValues[i] = new Control(settings[i]);
+            controls.add(new JLabel(settings[i].label));
+            controls.add(chosenValues[i].slider);
+            controls.add(chosenValues[i].field);
+        }
+
+        Timer debounce = new Timer(DEBOUNCE_MILLIS, e -> {
+            UnaryOperator<PixelPicture> f = op.make(values(chosenValues), scale);
+            JOBS.submit(
+                    () -> f.apply(small),
+                    result -> {
+                        image.setPicture(result);
+                        status.setText(" ");
+                    },
+                    ex -> status.setText(
+                            ex.getMessage() != null ? ex.getMessage() : ex.toString()
+                    )
+            );
+        });
+        debounce.setRepeats(false);
+        for (Control c : chosenValues) {
+            c.field.addChangeListener(e -> debounce.restart());
+        }
+
+        AtomicReference<UnaryOperator<PixelPicture>> chosen = new AtomicReference<>();
+        JButton ok = new JButton("OK");
+        JButton cancel = new JButton("Cancel");
+        ok.addActionListener(e -> {
+            chosen.set(op.make(values(chosenValues), 1.0));
+            dialog.dispose();
+        });
+        cancel.addActionListener(e -> dialog.dispose());
+        JPanel buttons = new JPanel();
+        buttons.add(ok);
+        buttons.add(cancel);
+
+        JPanel south = new JPanel(new BorderLayout());
+        south.add(status, BorderLayout.PAGE_START);
+        south.add(controls, BorderLayout.CENTER);
+        south.add(buttons, BorderLayout.PAGE_END);
+        dialog.setLayout(new BorderLayout());
+        dialog.add(image, BorderLayout.CENTER);
+        dialog.add(south, BorderLayout.PAGE_END);
+        dialog.pack();
+        dialog.setLocationRelativeTo(owner);
+
+        debounce.start();
+        dialog.setVisible(true);
+
+        // the dialog is closed
+        debounce.stop();
+        JOBS.cancel();
+        return chosen.get();
+    }
+
+    private static double[] values(Control[] controls) {
+        double[] values = new double[controls.length];
+        for (int i = 0; i < controls.length; i++) {
+            values[i] = controls[i].getValue();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,127 @@
+package org.cis1200;
+
+/**
+ * The eight ways of turning and flipping a picture onto a rectangle.
+ * <p>
+ * Each orientation is an optional transpose (swapping rows and columns)
+ * followed by optionally reversing the order of the rows and of the
+ * columns of the result. Any two orientations compose into a third (see
+ * {@link #then(Orientation)}), so a sequence of rotations and mirrors can be
+ * recorded as one orientation and applied to the pixels once.
+ * <p>
+ * Rotations and transposes move pixels in square tiles, so that both the
+ * rows being read and the rows being written stay in cache.
+ */
+public enum Orientation {
+    /** Leaves the picture as it is. */
+    IDENTITY(false, false, false),
+    /** Swaps left and right. */
+    MIRROR_HORIZONTAL(false, false, true),
+    /** Swaps top and bottom. */
+    MIRROR_VERTICAL(false, true, false),
+    /** Turns the picture upside down. */
+    ROTATE_180(false, true, true),
+    /** Swaps rows and columns, mirroring about the main diagonal. */
+    TRANSPOSE(true, false, false),
+    /** Turns the picture 90 degrees clockwise. */
+    ROTATE_CW(true, false, true),
+    /** Turns the picture 90 degrees counter-clockwise. */
+    ROTATE_CCW(true, true, false),
+    /** Mirrors the picture about the anti-diagonal. */
+    ANTI_TRANSPOSE(true, true, true);
+
+    // edge length of the square tiles used when transposing
+    private static final int TILE = 32;
+
+    private final boolean transpose;
+    private final boolean flipRows;
+    private final boolean flipCols;
+
+    Orientation(boolean transpose, boolean flipRows, boolean flipCols) {
+        this.transpose = transpose;
+        this.flipRows = flipRows;
+        this.flipCols = flipCols;
+    }
+
+    /**
+     * @return whether this orientation swaps the width and the height
+     */
+    public boolean swapsAxes() {
+        return transpose;
+    }
+
+    /**
+     * Composes two orientations.
+     *
+     * @param after the orientation to apply to the result of this one
+     * @return the orientation that applies this one and then {@code after}
+     */
+    public Orientation then(Orientation after) {
+        // a transpose turns reversed rows into reversed columns and back
+        boolean rows = (after.transpose ? flipCols : flipRows) ^ after.flipRows;
+        boolean cols = (after.transpose ? flipRows : flipCols) ^ after.flipCols;
+        return of(transpose ^ after.transpose, rows, cols);
+    }
+
+    private static Orientation of(boolean transpose, boolean flipRows, boolean flipCols) {
+        for (Orientation o : values()) {
+            if (o.transpose == transpose && o.flipRows == flipRows && o.flipCols == flipCols) {
+                return o;
+            }
+        }
+        throw new AssertionError();
+    }
+
+    /**
+     * Reorients a packed raster.
+     *
+     * @param src the packed pixels, in row-major order
+     * @param w   the width of {@code src}
+     * @param h   the height of {@code src}
+     * @return a new raster, {@code h} wide and {@code w} tall if this
+     *         orientation swaps axes and {@code w} by {@code h} otherwise
+     */
+    int[] apply(int[] src, int w, int h) {
+        int[] dst = new int[src.length];
+        if (!transpose) {
+            // whole rows stay rows
+            Parallel.forRows(h, w, (from, to) -> {
+                for (int row = from; row < to; row++) {
+                    int s = row * w;
+                    int d = (flipRows ? h - 1 - row : row) * w;
+                    if (!flipCols) {
+                        System.arraycopy(src, s, dst, d, w);
+                    } else {
+                        for (int col = 0; col < w; col++) {
+                            dst[d + w - 1 - col] = src[s + col];
+                        }
+                    }
+                }
+            });
+            return dst;
+        }
+
+        // source row r becomes destination column r (or h - 1 - r), and
+        // source column c becomes destination row c (or w - 1 - c); the
+        // destination is h wide
+        int step = flipRows ? -h : h;
+        Parallel.forRows(h, w, (from, to) -> {
+            for (int r0 = from; r0 < to; r0 += TILE) {
+                int r1 = Math.min(r0 + TILE, to);
+                for (int c0 = 0; c0 < w; c0 += TILE) {
+                    int c1 = Math.min(c0 + TILE, w);
+                    for (int row = r0; row < r1; row++) {
+                        int dcol = flipCols ? h - 1 - row : row;
+                        int d = (flipRows ? w - 1 - c0 : c0) * h + dcol;
+                        int s = row * w;
+                        for (int col = c0; col < c1; col++) {
+                            dst[d] = src[s + col];
+                            d += step;
+                        }
+                    }
+                }
+            }
+        });
+        return dst;
+    }
+}
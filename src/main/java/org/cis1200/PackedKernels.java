@@ -0,0 +1,299 @@
+package org.cis1200;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free versions of the image manipulations.
+ *
+ * Each kernel here reads the packed {@code 0xRRGGBB} raster of its input
+ * directly and writes into a single new int[] that becomes the result, so no
+ * Pixel or Pixel[][] is ever created. The arithmetic (including rounding and
+ * clipping) is exactly the same as the Pixel-based versions in
+ * SimpleManipulations and AdvancedManipulations, so the two produce
+ * identical images.
+ *
+ * The manipulations that depend only on a pixel's color (the gray scales,
+ * inversion, scaling and the second half of contrast) are ColorLuts.
+ *
+ * Kernels split their work into bands of rows through Parallel, so they
+ * use several cores when parallel execution is enabled. Only the color
+ * histogram in reducePalette is always counted on one thread.
+ *
+ * The public manipulation methods dispatch here while packed kernels are
+ * enabled (the default). Disabling them falls back to the original
+ * Pixel-based code, which is useful for checking the two against each other.
+ */
+public class PackedKernels {
+
+    private static volatile boolean enabled = true;
+
+    private PackedKernels() {
+    }
+
+    /**
+     * Selects whether the manipulations use packed kernels.
+     *
+     * @param on true to use packed kernels, false for the Pixel[][] versions
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * @return whether the manipulations currently use packed kernels
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /* ---------- per-pixel formulas, shared with PointOps ---------- */
+
+    static int scale(int p, double rfactor, double gfactor, double bfactor) {
+        return Pixel.pack(
+                (int) Math.round(Pixel.red(p) * rfactor),
+                (int) Math.round(Pixel.green(p) * gfactor),
+                (int) Math.round(Pixel.blue(p) * bfactor)
+        );
+    }
+
+    static int blend(double alpha, int pa, int pb) {
+        return Pixel.pack(
+                SimpleManipulations.weightedAverage(alpha, Pixel.red(pa), Pixel.red(pb)),
+                SimpleManipulations.weightedAverage(alpha, Pixel.green(pa), Pixel.green(pb)),
+                SimpleManipulations.weightedAverage(alpha, Pixel.blue(pa), Pixel.blue(pb))
+        );
+    }
+
+    /**
+     * The vignette darkening factor at (row, col), for an image centered at
+     * (cx, cy) whose center-to-corner distance is r.
+     */
+    static double vignetteFactor(int row, int col, double cx, double cy, double r) {
+        double dx = col - cx;
+        double dy = row - cy;
+        double d = Math.sqrt((dx * dx) + (dy * dy)) / r;
+        return 1.0 - d * d;
+    }
+
+    /* ---------- whole-image kernels ---------- */
+
+    static PixelPicture rotateCW(PixelPicture pic) {
+        return pic.reorient(Orientation.ROTATE_CW);
+    }
+
+    static PixelPicture rotateCCW(PixelPicture pic) {
+        return pic.reorient(Orientation.ROTATE_CCW);
+    }
+
+    static PixelPicture rotate180(PixelPicture pic) {
+        return pic.reorient(Orientation.ROTATE_180);
+    }
+
+    static PixelPicture mirrorHorizontal(PixelPicture pic) {
+        return pic.reorient(Orientation.MIRROR_HORIZONTAL);
+    }
+
+    static PixelPicture mirrorVertical(PixelPicture pic) {
+        return pic.reorient(Orientation.MIRROR_VERTICAL);
+    }
+
+    static PixelPicture border(PixelPicture pic, int borderWidth, Pixel borderColor) {
+        return pic.withBorder(borderWidth, borderColor.toRGB());
+    }
+
+    static int[] border(int[] src, int w, int h, int borderWidth, int color) {
+        int tw = w + borderWidth * 2;
+        int th = h + borderWidth * 2;
+        int[] tgt = new int[tw * th];
+
+        Parallel.forRows(th, tw, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                int base = row * tw;
+                int srow = row - borderWidth;
+                if (srow < 0 || srow >= h) {
+                    Arrays.fill(tgt, base, base + tw, color);
+                } else {
+                    Arrays.fill(tgt, base, base + borderWidth, color);
+                    System.arraycopy(src, srow * w, tgt, base + borderWidth, w);
+                    Arrays.fill(tgt, base + borderWidth + w, base + tw, color);
+                }
+            }
+        });
+        return tgt;
+    }
+
+    static PixelPicture grayScaleLuminosity(PixelPicture pic) {
+        return ColorLut.grayScaleLuminosity().apply(pic);
+    }
+
+    static PixelPicture invertColors(PixelPicture pic) {
+        return ColorLut.invertColors().apply(pic);
+    }
+
+    static PixelPicture grayScaleAverage(PixelPicture pic) {
+        return ColorLut.grayScaleAverage().apply(pic);
+    }
+
+    static PixelPicture scaleColors(
+            PixelPicture pic, double rfactor, double gfactor, double bfactor
+    ) {
+        return ColorLut.scaleColors(rfactor, gfactor, bfactor).apply(pic);
+    }
+
+    static PixelPicture alphaBlend(double alpha, PixelPicture pic, PixelPicture f) {
+        int w = pic.getWidth();
+        int[] a = pic.packed();
+        int[] b = f.packed();
+        int[] tgt = new int[a.length];
+
+        Parallel.forRows(pic.getHeight(), w, (from, to) -> {
+            for (int i = from * w; i < to * w; i++) {
+                tgt[i] = blend(alpha, a[i], b[i]);
+            }
+        });
+        return PixelPicture.fromPacked(w, pic.getHeight(), tgt);
+    }
+
+    static PixelPicture vignette(PixelPicture pic) {
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+        // a single pixel has no edges to darken
+        if (w == 1 && h == 1) {
+            return pic;
+        }
+
+        double[] q = VignetteCache.quadrant(w, h);
+        int qw = (w + 1) / 2;
+        int[] src = pic.packed();
+        int[] tgt = new int[src.length];
+
+        Parallel.forRows(h, w, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                int base = row * w;
+                int qbase = (row < (h + 1) / 2 ? row : h - 1 - row) * qw;
+                // left half reads the quadrant forwards, right half backwards
+                for (int col = 0; col < qw; col++) {
+                    double factor = q[qbase + col];
+                    tgt[base + col] = scale(src[base + col], factor, factor, factor);
+                }
+                for (int col = qw; col < w; col++) {
+                    double factor = q[qbase + w - 1 - col];
+                    tgt[base + col] = scale(src[base + col], factor, factor, factor);
+                }
+            }
+        });
+        return PixelPicture.fromPacked(w, h, tgt);
+    }
+
+    static PixelPicture adjustContrast(PixelPicture pic, double multiplier) {
+        return adjustContrast(pic, multiplier, meanIntensity(pic));
+    }
+
+    static PixelPicture adjustContrast(PixelPicture pic, double multiplier, int mean) {
+        return ColorLut.contrast(multiplier, mean).apply(pic);
+    }
+
+    static int meanIntensity(PixelPicture pic) {
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+        int[] src = pic.packed();
+
+        // a long total, so large pictures do not overflow
+        long total = Parallel.sumRows(h, w, (from, to) -> {
+            long sum = 0;
+            for (int i = from * w; i < to * w; i++) {
+                int p = src[i];
+                sum += (p >>> 16 & 0xff) + (p >>> 8 & 0xff) + (p & 0xff);
+            }
+            return sum;
+        });
+        return (int) Math.round(total / (3.0 * w * h));
+    }
+
+    static int sampledMeanIntensity(PixelPicture pic, int samples) {
+        int[] src = pic.packed();
+        int stride = Math.max(1, src.length / Math.max(1, samples));
+
+        long total = 0;
+        int count = 0;
+        for (int i = stride / 2; i < src.length; i += stride) {
+            int p = src[i];
+            total += (p >>> 16 & 0xff) + (p >>> 8 & 0xff) + (p & 0xff);
+            count++;
+        }
+        return (int) Math.round(total / (3.0 * count));
+    }
+
+    static PixelPicture reducePalette(PixelPicture pic, int numColors) {
+        int w = pic.getWidth();
+        int[] src = pic.packed();
+        ColorMap m = ColorMap.forPixelCount(src.length);
+        for (int rgb : src) {
+            m.increment(rgb);
+        }
+
+        // asking for more colors than the picture has keeps all of them
+        int[] palette = m.getSortedColors(Math.max(1, numColors));
+
+        PaletteIndex index = new PaletteIndex(palette);
+        int[] tgt = new int[src.length];
+        Parallel.forRows(pic.getHeight(), w, (from, to) -> {
+            // each band gets its own search state and memo
+            PaletteIndex local = index.fork();
+            for (int i = from * w; i < to * w; i++) {
+                tgt[i] = palette[local.nearest(src[i])];
+            }
+        });
+        return PixelPicture.fromPacked(w, pic.getHeight(), tgt);
+    }
+
+    /* ---------- resampling for display, with no Pixel-based version ---------- */
+
+    /**
+     * Shrinks a picture by averaging squares of pixels.
+     *
+     * @param pic    the picture
+     * @param factor the side of the squares; the edges of the picture may
+     *               leave smaller rectangles, which are averaged too
+     * @return the shrunk picture, {@code ceil(w / factor)} by
+     *         {@code ceil(h / factor)}
+     */
+    static PixelPicture downscale(PixelPicture pic, int factor) {
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+        int dw = (w + factor - 1) / factor;
+        int dh = (h + factor - 1) / factor;
+        int[] src = pic.packed();
+        int[] dst = new int[dw * dh];
+
+        Parallel.forRows(dh, dw * factor, (from, to) -> {
+            int[] sums = new int[3 * dw];
+            for (int drow = from; drow < to; drow++) {
+                Arrays.fill(sums, 0);
+                int top = drow * factor;
+                int bottom = Math.min(h, top + factor);
+                for (int row = top; row < bottom; row++) {
+                    int base = row * w;
+                    for (int col = 0; col < w; col++) {
+                        int p = src[base + col];
+                        int d = 3 * (col / factor);
+                        sums[d] += Pixel.red(p);
+                        sums[d + 1] += Pixel.green(p);
+                        sums[d + 2] += Pixel.blue(p);
+                    }
+                }
+                int rows = bottom - top;
+                for (int dcol = 0; dcol < dw; dcol++) {
+                    int n = rows * (Math.min(w, (dcol + 1) * factor) - dcol * factor);
+                    int d = 3 * dcol;
+                    dst[drow * dw + dcol] = Pixel.pack(
+                            (sums[d] + n / 2) / n,
+                            (sums[d + 1] + n / 2) / n,
+                            (sums[d + 2] + n / 2) / n
+                    );
+                }
+            }
+        });
+        return PixelPicture.fromPacked(dw, dh, dst);
+    }
+}
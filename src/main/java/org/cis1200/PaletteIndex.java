@@ -0,0 +1,247 @@
+package org.cis1200;
+
+import java.util.Arrays;
+
+/**
+ * Finds the closest palette color to a given color.
+ *
+ * "Closest" uses the same measure as {@link Pixel#distance(Pixel)}: the sum
+ * of the absolute differences of the components. When several palette colors
+ * are equally close, the one that comes first in the palette wins. Since
+ * reducePalette orders its palette by descending frequency, this is the same
+ * as its rule of preferring the more frequent color.
+ *
+ * The palette is stored as a k-d tree over (red, green, blue), so a lookup
+ * only visits the few palette colors near the query rather than all of them.
+ * Images repeat colors a great deal, so every answer is also remembered per
+ * distinct query color and later lookups of that color are a single hash
+ * probe.
+ *
+ * An index is not safe for use by several threads at once; give each thread
+ * its own {@link #fork()}.
+ */
+public class PaletteIndex {
+
+    // k-d tree in implicit form: the node for [lo, hi) is at (lo + hi) >>> 1,
+    // its left subtree is [lo, mid) and its right subtree is [mid + 1, hi)
+    private final int[] reds;
+    private final int[] greens;
+    private final int[] blues;
+    private final int[] order;
+    private final byte[] axes;
+    private final int[] palette;
+
+    // memo of answers, open addressing on the query color; -1 marks empty
+    private int[] memoKeys;
+    private int[] memoValues;
+    private int memoSize;
+
+    // the best match so far during a search
+    private int bestDistance;
+    private int bestIndex;
+
+    /**
+     * Builds an index over a palette.
+     *
+     * @param palette the palette, as packed {@code 0xRRGGBB} colors in
+     *                priority order; must not be empty
+     */
+    public PaletteIndex(int[] palette) {
+        if (palette.length == 0) {
+            throw new IllegalArgumentException("empty palette");
+        }
+        int n = palette.length;
+        this.palette = palette.clone();
+        reds = new int[n];
+        greens = new int[n];
+        blues = new int[n];
+        order = new int[n];
+        axes = new byte[n];
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = i;
+        }
+        build(keys, 0, n);
+
+        memoKeys = new int[64];
+        memoValues = new int[64];
+        Arrays.fill(memoKeys, -1);
+    }
+
+    private PaletteIndex(PaletteIndex other) {
+        reds = other.reds;
+        greens = other.greens;
+        blues = other.blues;
+        order = other.order;
+        axes = other.axes;
+        palette = other.palette;
+
+        memoKeys = new int[64];
+        memoValues = new int[64];
+        Arrays.fill(memoKeys, -1);
+    }
+
+    /**
+     * Makes an index over the same palette that can be used on another
+     * thread. The tree is shared; the memo and search state are not.
+     *
+     * @return a new index giving the same answers as this one
+     */
+    public PaletteIndex fork() {
+        return new PaletteIndex(this);
+    }
+
+    /**
+     * @return the number of colors in the palette
+     */
+    public int size() {
+        return palette.length;
+    }
+
+    /**
+     * Gets a palette color.
+     *
+     * @param index the position in the palette
+     * @return the packed color at that position
+     */
+    public int color(int index) {
+        return palette[index];
+    }
+
+    /**
+     * Finds the closest palette color.
+     *
+     * @param rgb a packed {@code 0xRRGGBB} color; the high byte is ignored
+     * @return the position in the palette of the closest color
+     */
+    public int nearest(int rgb) {
+        rgb &= 0xffffff;
+        int mask = memoKeys.length - 1;
+        int slot = mix(rgb) & mask;
+        while (memoKeys[slot] != -1) {
+            if (memoKeys[slot] == rgb) {
+                return memoValues[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        bestDistance = Integer.MAX_VALUE;
+        bestIndex = Integer.MAX_VALUE;
+        search(Pixel.red(rgb), Pixel.green(rgb), Pixel.blue(rgb), 0, palette.length);
+
+        memoKeys[slot] = rgb;
+        memoValues[slot] = bestIndex;
+        if (++memoSize * 2 > memoKeys.length) {
+            growMemo();
+        }
+        return bestIndex;
+    }
+
+    /**
+     * Arranges keys[lo, hi) into a k-d tree, splitting on the component
+     * with the widest spread.
+     */
+    private void build(long[] keys, int lo, int hi) {
+        if (lo >= hi) {
+            return;
+        }
+        int[] min = { 255, 255, 255 };
+        int[] max = { 0, 0, 0 };
+        for (int i = lo; i < hi; i++) {
+            int c = palette[(int) keys[i]];
+            int[] comps = { Pixel.red(c), Pixel.green(c), Pixel.blue(c) };
+            for (int a = 0; a < 3; a++) {
+                min[a] = Math.min(min[a], comps[a]);
+                max[a] = Math.max(max[a], comps[a]);
+            }
+        }
+        int axis = 0;
+        for (int a = 1; a < 3; a++) {
+            if (max[a] - min[a] > max[axis] - min[axis]) {
+                axis = a;
+            }
+        }
+
+        // sort by the chosen component, carrying the palette index along
+        int shift = 16 - 8 * axis;
+        for (int i = lo; i < hi; i++) {
+            int idx = (int) keys[i];
+            long comp = (palette[idx] >> shift) & 0xff;
+            keys[i] = (comp << 32) | idx;
+        }
+        Arrays.sort(keys, lo, hi);
+        for (int i = lo; i < hi; i++) {
+            int idx = (int) keys[i];
+            int c = palette[idx];
+            keys[i] = idx;
+            order[i] = idx;
+            reds[i] = Pixel.red(c);
+            greens[i] = Pixel.green(c);
+            blues[i] = Pixel.blue(c);
+        }
+
+        int mid = (lo + hi) >>> 1;
+        axes[mid] = (byte) axis;
+        build(keys, lo, mid);
+        build(keys, mid + 1, hi);
+    }
+
+    private void search(int r, int g, int b, int lo, int hi) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int d = Math.abs(r - reds[mid]) + Math.abs(g - greens[mid]) + Math.abs(b - blues[mid]);
+        int idx = order[mid];
+        if (d < bestDistance || (d == bestDistance && idx < bestIndex)) {
+            bestDistance = d;
+            bestIndex = idx;
+        }
+
+        int diff;
+        switch (axes[mid]) {
+            case 0 -> diff = r - reds[mid];
+            case 1 -> diff = g - greens[mid];
+            default -> diff = b - blues[mid];
+        }
+
+        // everything on the far side is at least |diff| away; equal distances
+        // still matter because an earlier palette color wins a tie
+        if (diff < 0) {
+            search(r, g, b, lo, mid);
+            if (-diff <= bestDistance) {
+                search(r, g, b, mid + 1, hi);
+            }
+        } else {
+            search(r, g, b, mid + 1, hi);
+            if (diff <= bestDistance) {
+                search(r, g, b, lo, mid);
+            }
+        }
+    }
+
+    private void growMemo() {
+        int[] oldKeys = memoKeys;
+        int[] oldValues = memoValues;
+        memoKeys = new int[oldKeys.length * 2];
+        memoValues = new int[oldKeys.length * 2];
+        Arrays.fill(memoKeys, -1);
+        int mask = memoKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != -1) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (memoKeys[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                memoKeys[slot] = oldKeys[i];
+                memoValues[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
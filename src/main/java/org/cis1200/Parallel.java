@@ -0,0 +1,388 @@
+package org.cis1200;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the packed kernels on several cores by splitting the picture into
+ * horizontal bands of rows.
+ * <p>
+ * Every kernel computes each output row independently of the others (or
+ * combines per-band integer sums, which do not depend on the order of
+ * addition), so the result is identical whether or not it runs in
+ * parallel.
+ * <p>
+ * Parallel execution is off by default. {@link #setEnabled(boolean)} turns
+ * it on for every call, and {@link #call(boolean, Supplier)} overrides that
+ * choice for the manipulations made by one piece of code on the current
+ * thread. Work runs in a dedicated ForkJoinPool whose size is set by
+ * {@link #setParallelism(int)}.
+ * <p>
+ * Manipulations run through {@link #monitor(Monitor, Supplier)} report how
+ * many rows of each pass over the picture are done, and stop between bands
+ * of rows once the Monitor is cancelled.
+ */
+public class Parallel {
+
+    /**
+     * A piece of work over rows {@code [from, to)}.
+     */
+    @FunctionalInterface
+    public interface RowRange {
+        /**
+         * @param from the first row to process
+         * @param to   one past the last row to process
+         */
+        void run(int from, int to);
+    }
+
+    /**
+     * A sum over rows {@code [from, to)}.
+     */
+    @FunctionalInterface
+    public interface RowSum {
+        /**
+         * @param from the first row to sum over
+         * @param to   one past the last row to sum over
+         * @return the sum for those rows
+         */
+        long sum(int from, int to);
+    }
+
+    /**
+     * Follows the progress of manipulations run through
+     * {@link #monitor(Monitor, Supplier)}, and cancels them.
+     * <p>
+     * A manipulation makes one or more passes over the rows of a picture;
+     * the progress is that of the current pass. Manipulations are only
+     * stopped between bands of rows, and code that does not go through this
+     * class, such as the Pixel[][] reference implementations, is not
+     * stopped at all.
+     */
+    public static final class Monitor {
+        private volatile boolean cancelled = false;
+        private volatile int passes = 0;
+        private volatile int rows = 0;
+        private final AtomicInteger done = new AtomicInteger();
+
+        /**
+         * Asks the monitored manipulations to stop. They throw a
+         * CancellationException when they next check.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * @return whether {@link #cancel()} was called
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return how many passes over rows have started
+         */
+        public int getPasses() {
+            return passes;
+        }
+
+        /**
+         * @return the fraction of the rows of the current pass that are done,
+         *         from 0 to 1
+         */
+        public double getProgress() {
+            int total = rows;
+            return total == 0 ? 0 : Math.min(1.0, (double) done.get() / total);
+        }
+
+        private void start(int total) {
+            check();
+            done.set(0);
+            rows = total;
+            passes++;
+        }
+
+        private void check() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+        }
+    }
+
+    // below this many pixels, splitting costs more than it saves
+    private static final int MIN_PARALLEL_PIXELS = 1 << 16;
+
+    // bands per thread, so that uneven bands still balance out
+    private static final int BANDS_PER_THREAD = 4;
+
+    // bands per pass when monitored, even when running sequentially, so
+    // that progress moves and cancelling takes effect promptly
+    private static final int MONITORED_BANDS = 32;
+
+    private static volatile boolean enabled = false;
+    private static volatile ForkJoinPool pool = new ForkJoinPool(
+            Runtime.getRuntime().availableProcessors()
+    );
+    private static final ThreadLocal<Boolean> OVERRIDE = new ThreadLocal<>();
+    private static final ThreadLocal<Monitor> MONITOR = new ThreadLocal<>();
+
+    private Parallel() {
+    }
+
+    /**
+     * Turns parallel execution on or off for all manipulations.
+     *
+     * @param on true to run in parallel
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * @return whether manipulations made on this thread run in parallel,
+     *         taking any {@link #call(boolean, Supplier)} override into account
+     */
+    public static boolean isEnabled() {
+        Boolean o = OVERRIDE.get();
+        return o != null ? o : enabled;
+    }
+
+    /**
+     * Sets the number of threads used for parallel execution. Manipulations
+     * already running finish on the old threads; a manipulation that was
+     * about to start on them moves to the new ones.
+     *
+     * @param threads the number of worker threads, at least 1
+     */
+    public static void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("parallelism must be positive, got " + threads);
+        }
+        ForkJoinPool old = pool;
+        pool = new ForkJoinPool(threads);
+        old.shutdown();
+    }
+
+    /**
+     * @return the number of threads used for parallel execution
+     */
+    public static int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Runs some manipulations with parallel execution forced on or off,
+     * whatever the global setting.
+     *
+     * @param parallel whether to run in parallel
+     * @param task     the manipulations to run, on this thread
+     * @param <T>      the type of the result
+     * @return the result of {@code task}
+     */
+    public static <T> T call(boolean parallel, Supplier<T> task) {
+        Boolean saved = OVERRIDE.get();
+        OVERRIDE.set(parallel);
+        try {
+            return task.get();
+        } finally {
+            if (saved == null) {
+                OVERRIDE.remove();
+            } else {
+                OVERRIDE.set(saved);
+            }
+        }
+    }
+
+    /**
+     * Runs some manipulations under a Monitor, which sees their progress
+     * and can cancel them from another thread.
+     *
+     * @param monitor the monitor
+     * @param task    the manipulations to run, on this thread
+     * @param <T>     the type of the result
+     * @return the result of {@code task}
+     * @throws CancellationException if the monitor was cancelled before
+     *                               {@code task} finished
+     */
+    public static <T> T monitor(Monitor monitor, Supplier<T> task) {
+        Monitor saved = MONITOR.get();
+        MONITOR.set(monitor);
+        try {
+            monitor.check();
+            T result = task.get();
+            monitor.check();
+            return result;
+        } finally {
+            if (saved == null) {
+                MONITOR.remove();
+            } else {
+                MONITOR.set(saved);
+            }
+        }
+    }
+
+    /**
+     * Processes {@code rows} rows, in bands on the pool if parallel execution
+     * is enabled and the picture is big enough, otherwise in one call on
+     * this thread (or, when monitored, band by band on this thread).
+     *
+     * @param rows  the number of rows
+     * @param width the number of pixels per row, used to judge the cost
+     * @param body  the work for a band of rows
+     */
+    static void forRows(int rows, int width, RowRange body) {
+        forRows(rows, width, 0, body);
+    }
+
+    /**
+     * Like {@link #forRows(int, int, RowRange)}, for work where each band
+     * must first read {@code halo} rows beyond its own. Bands are kept at
+     * least that tall, so the extra reading costs at most as much as the
+     * band itself.
+     *
+     * @param rows  the number of rows
+     * @param width the number of pixels per row, used to judge the cost
+     * @param halo  the number of extra rows each band reads
+     * @param body  the work for a band of rows
+     */
+    static void forRows(int rows, int width, int halo, RowRange body) {
+        int minRows = Math.max(1, halo);
+        int bands = Math.min(bandCount(rows, width), rows / minRows);
+        Monitor m = MONITOR.get();
+        if (m == null && bands <= 1) {
+            body.run(0, rows);
+            return;
+        }
+
+        int split = bands;
+        if (m != null) {
+            m.start(rows);
+            split = Math.max(1, Math.max(bands, Math.min(MONITORED_BANDS, rows / minRows)));
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(split);
+        for (int b = 0; b < split; b++) {
+            int from = bandStart(rows, split, b);
+            int to = bandStart(rows, split, b + 1);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                if (m != null) {
+                    m.check();
+                }
+                body.run(from, to);
+                if (m != null) {
+                    m.done.addAndGet(to - from);
+                }
+            }));
+        }
+        run(tasks, bands > 1);
+    }
+
+    /**
+     * Adds up a sum over {@code rows} rows, computing the sum for each band
+     * on the pool if parallel execution is enabled and the picture is big
+     * enough. Because the sums are integers, the total does not depend on
+     * how the rows were split.
+     *
+     * @param rows  the number of rows
+     * @param width the number of pixels per row, used to judge the cost
+     * @param body  the sum for a band of rows
+     * @return the sum over all rows
+     */
+    static long sumRows(int rows, int width, RowSum body) {
+        int bands = bandCount(rows, width);
+        Monitor m = MONITOR.get();
+        if (m == null && bands <= 1) {
+            return body.sum(0, rows);
+        }
+
+        int split = bands;
+        if (m != null) {
+            m.start(rows);
+            split = Math.max(1, Math.max(bands, Math.min(MONITORED_BANDS, rows)));
+        }
+        long[] partial = new long[split];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(split);
+        for (int b = 0; b < split; b++) {
+            int band = b;
+            int from = bandStart(rows, split, b);
+            int to = bandStart(rows, split, b + 1);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                if (m != null) {
+                    m.check();
+                }
+                partial[band] = body.sum(from, to);
+                if (m != null) {
+                    m.done.addAndGet(to - from);
+                }
+            }));
+        }
+        run(tasks, bands > 1);
+
+        long total = 0;
+        for (long p : partial) {
+            total += p;
+        }
+        return total;
+    }
+
+    private static int bandStart(int rows, int bands, int band) {
+        return (int) ((long) rows * band / bands);
+    }
+
+    /**
+     * Runs band tasks, on the pool if {@code parallel}, otherwise one after
+     * another on this thread. A thread of any other ForkJoinPool, such as
+     * the common pool, hands the bands to this class's pool too.
+     */
+    private static void run(List<ForkJoinTask<?>> tasks, boolean parallel) {
+        if (!parallel) {
+            for (ForkJoinTask<?> t : tasks) {
+                t.invoke();
+            }
+        } else if (ForkJoinTask.getPool() == pool) {
+            // already a band, or a task, on this class's pool
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+        }
+    }
+
+    /**
+     * Submits a task to the pool. If {@link #setParallelism(int)} shut the
+     * pool down between reading it and submitting, the task goes to the
+     * pool that replaced it.
+     */
+    private static ForkJoinTask<?> submit(Runnable task) {
+        ForkJoinPool p = pool;
+        while (true) {
+            try {
+                return p.submit(task);
+            } catch (RejectedExecutionException e) {
+                if (p == pool) {
+                    throw e;
+                }
+                p = pool;
+            }
+        }
+    }
+
+    /**
+     * Decides how many bands to split the rows into.
+     *
+     * @param rows  the number of rows
+     * @param width the number of pixels per row
+     * @return the number of bands; 1 means run sequentially
+     */
+    private static int bandCount(int rows, int width) {
+        if (!isEnabled() || (long) rows * width < MIN_PARALLEL_PIXELS) {
+            return 1;
+        }
+        return Math.max(1, Math.min(rows, getParallelism() * BANDS_PER_THREAD));
+    }
+}
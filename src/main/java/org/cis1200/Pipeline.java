@@ -0,0 +1,139 @@
+package org.cis1200;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * A sequence of image manipulations that runs consecutive per-pixel steps as
+ * a single pass.
+ * <p>
+ * Chaining manipulations directly builds a whole intermediate picture after
+ * every step. A pipeline instead composes each run of consecutive
+ * {@link #map(PointOp)} steps into one PointOp, applied in one loop that
+ * writes one output raster. Steps that need more than one pixel at a time
+ * (a blur, which reads a neighbourhood, or contrast and palette reduction,
+ * which first look at the whole picture) are added with
+ * {@link #then(UnaryOperator)}; they end the current fused run and receive
+ * a fully materialized picture.
+ * <p>
+ * Pipelines are immutable: {@code map} and {@code then} return a new
+ * pipeline, so a pipeline can be built once and applied to many pictures.
+ * <pre>
+ * Pipeline.start()
+ *         .map(PointOps.grayScaleLuminosity())
+ *         .map(PointOps.scaleColors(1.0, 0.95, 0.75))
+ *         .then(p -&gt; AdvancedManipulations.blur(p, 1))
+ *         .apply(pic);
+ * </pre>
+ */
+public class Pipeline {
+
+    /**
+     * One step: either a fused run of point operations or a barrier.
+     */
+    private static final class Stage {
+        private final PointOp op;
+        private final UnaryOperator<PixelPicture> barrier;
+
+        private Stage(PointOp op, UnaryOperator<PixelPicture> barrier) {
+            this.op = op;
+            this.barrier = barrier;
+        }
+    }
+
+    private static final Pipeline EMPTY = new Pipeline(Collections.emptyList());
+
+    private final List<Stage> stages;
+
+    private Pipeline(List<Stage> stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * @return a pipeline with no steps, which returns its input unchanged
+     */
+    public static Pipeline start() {
+        return EMPTY;
+    }
+
+    /**
+     * Adds a per-pixel step. It is fused with the previous step if that one
+     * is also a per-pixel step.
+     *
+     * @param op the operation to apply to every pixel
+     * @return the extended pipeline
+     */
+    public Pipeline map(PointOp op) {
+        List<Stage> next = new ArrayList<>(stages);
+        int last = next.size() - 1;
+        if (last >= 0 && next.get(last).op != null) {
+            next.set(last, new Stage(next.get(last).op.andThen(op), null));
+        } else {
+            next.add(new Stage(op, null));
+        }
+        return new Pipeline(next);
+    }
+
+    /**
+     * Adds a step that works on a whole picture, such as a blur or a
+     * palette reduction.
+     *
+     * @param step the manipulation to apply
+     * @return the extended pipeline
+     */
+    public Pipeline then(UnaryOperator<PixelPicture> step) {
+        List<Stage> next = new ArrayList<>(stages);
+        next.add(new Stage(null, step));
+        return new Pipeline(next);
+    }
+
+    /**
+     * Runs the pipeline.
+     *
+     * @param pic the input picture
+     * @return the result of applying every step in order
+     */
+    public PixelPicture apply(PixelPicture pic) {
+        PixelPicture current = pic;
+        for (Stage s : stages) {
+            if (s.op != null) {
+                current = applyPointOp(current, s.op);
+            } else {
+                current = s.barrier.apply(current);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Applies a single per-pixel operation to a picture in one pass, in
+     * bands of rows if {@link Parallel} is enabled. The operation must
+     * therefore be safe to call from several threads.
+     *
+     * @param pic the input picture
+     * @param op  the operation to apply to every pixel
+     * @return a new picture
+     */
+    public static PixelPicture applyPointOp(PixelPicture pic, PointOp op) {
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+        PointOp bound = op.bind(w, h);
+        if (bound instanceof ColorLut) {
+            return ((ColorLut) bound).apply(pic);
+        }
+        int[] src = pic.packed();
+        int[] dst = new int[src.length];
+
+        Parallel.forRows(h, w, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                int base = row * w;
+                for (int col = 0; col < w; col++) {
+                    dst[base + col] = bound.apply(src[base + col], row, col);
+                }
+            }
+        });
+        return PixelPicture.fromPacked(w, h, dst);
+    }
+}
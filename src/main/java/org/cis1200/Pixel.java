@@ -119,6 +119,74 @@ public class Pixel implements Comparable<Pixel> {
         pixelArray[2] = a1[2];
     }
 
+    /**
+     * Packs three color components into a single {@code 0xRRGGBB} int, the
+     * layout used by {@link PixelPicture}'s raster. Components are clipped to
+     * [0, 255] exactly as the constructors do, so
+     * {@code pack(r, g, b) == new Pixel(r, g, b).toRGB()}.
+     *
+     * @param r the red component
+     * @param g the green component
+     * @param b the blue component
+     * @return the packed color
+     */
+    public static int pack(int r, int g, int b) {
+        r = r < 0 ? 0 : (r > 255 ? 255 : r);
+        g = g < 0 ? 0 : (g > 255 ? 255 : g);
+        b = b < 0 ? 0 : (b > 255 ? 255 : b);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Extracts the red component of a packed color. The high (alpha) byte is
+     * ignored.
+     *
+     * @param rgb a packed {@code 0xRRGGBB} color
+     * @return the red component
+     */
+    public static int red(int rgb) {
+        return (rgb >> 16) & 0xff;
+    }
+
+    /**
+     * Extracts the green component of a packed color.
+     *
+     * @param rgb a packed {@code 0xRRGGBB} color
+     * @return the green component
+     */
+    public static int green(int rgb) {
+        return (rgb >> 8) & 0xff;
+    }
+
+    /**
+     * Extracts the blue component of a packed color.
+     *
+     * @param rgb a packed {@code 0xRRGGBB} color
+     * @return the blue component
+     */
+    public static int blue(int rgb) {
+        return rgb & 0xff;
+    }
+
+    /**
+     * Creates a pixel from a packed color. The high (alpha) byte is ignored.
+     *
+     * @param rgb a packed {@code 0xRRGGBB} color
+     * @return the corresponding pixel
+     */
+    public static Pixel fromRGB(int rgb) {
+        return new Pixel(red(rgb), green(rgb), blue(rgb));
+    }
+
+    /**
+     * Packs this pixel into a single {@code 0xRRGGBB} int.
+     *
+     * @return the packed color
+     */
+    public int toRGB() {
+        return (pixelArray[0] << 16) | (pixelArray[1] << 8) | pixelArray[2];
+    }
+
     /**
      * Accessor for the red component of the pixel.
      * 
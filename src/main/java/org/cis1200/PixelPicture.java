@@ -1,12 +1,14 @@
 package org.cis1200;
 
 import java.io.*;
+import java.nio.IntBuffer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.awt.*;
 import java.awt.image.*;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
 import javax.swing.*;
 
 /**
@@ -15,11 +17,87 @@ import javax.swing.*;
  * PixelPictures are immutable. Although they provide access to a 2D
  * array of pixels, this array is a copy of the one stored in the NewPic.
  * The original image cannot be modified.
+ *
+ * Internally the image is a TYPE_INT_RGB raster, i.e. one packed
+ * {@code 0xRRGGBB} int per pixel in row-major order. Filters that want to
+ * avoid building a Pixel[][] can read that raster directly through
+ * {@link #getPackedView()} and hand their output back through
+ * {@link #fromPacked(int, int, int[])}.
+ *
+ * Rotating, mirroring and adding a border can be lazy (see
+ * {@link #setLazyViews(boolean)}): the new picture then only records how to
+ * compute its pixels from the original, and computes them the first time
+ * they are read or saved. Further rotations and mirrors of a picture that
+ * has not been read compose into a single Orientation, and borders around
+ * a border of the same color merge, so a chain of them costs one pass.
  */
 public class PixelPicture {
 
+    private static final int[] RGB_MASKS = { 0xff0000, 0x00ff00, 0x0000ff };
+    private static final DirectColorModel RGB_MODEL = new DirectColorModel(
+            24, RGB_MASKS[0], RGB_MASKS[1], RGB_MASKS[2]
+    );
+
+    private static volatile boolean lazyViews = false;
+
     private BufferedImage bufferedImage;
-    private WritableRaster raster;
+    private volatile int[] data;
+    private int width;
+    private int height;
+
+    // how to compute the pixels while data is still null
+    private Deferred pending;
+
+    /**
+     * Pixels that have not been computed yet.
+     */
+    private interface Deferred {
+        int[] render();
+    }
+
+    /**
+     * A raster that is still to be rotated or mirrored.
+     */
+    private static final class Reoriented implements Deferred {
+        private final int[] source;
+        private final int width;
+        private final int height;
+        private final Orientation orientation;
+
+        private Reoriented(int[] source, int width, int height, Orientation orientation) {
+            this.source = source;
+            this.width = width;
+            this.height = height;
+            this.orientation = orientation;
+        }
+
+        @Override
+        public int[] render() {
+            return orientation.apply(source, width, height);
+        }
+    }
+
+    /**
+     * A picture that is still to get a border.
+     */
+    private static final class Bordered implements Deferred {
+        private final PixelPicture inner;
+        private final int borderWidth;
+        private final int color;
+
+        private Bordered(PixelPicture inner, int borderWidth, int color) {
+            this.inner = inner;
+            this.borderWidth = borderWidth;
+            this.color = color;
+        }
+
+        @Override
+        public int[] render() {
+            return PackedKernels.border(
+                    inner.packed(), inner.getWidth(), inner.getHeight(), borderWidth, color
+            );
+        }
+    }
 
     /**
      * Copies a NewPic.
@@ -27,14 +105,7 @@ public class PixelPicture {
      * @param other NewPic the other NewPic to copy
      */
     public PixelPicture(PixelPicture other) {
-        bufferedImage = new BufferedImage(
-                other.getWidth(),
-                other.getHeight(),
-                BufferedImage.TYPE_INT_RGB
-        );
-
-        raster = bufferedImage.getRaster();
-        raster.setRect(other.bufferedImage.getRaster());
+        adopt(other.getWidth(), other.getHeight(), other.packed().clone());
     }
 
     /**
@@ -43,7 +114,20 @@ public class PixelPicture {
      * @param filename the location of the image file to read
      */
     public PixelPicture(String filename) {
-        load(filename);
+        load(filename, 1);
+    }
+
+    /**
+     * Creates a reduced NewPic by loading every {@code subsampling}-th pixel,
+     * in each direction, of the given file or URL. The skipped pixels are not
+     * decoded into memory, which makes this much cheaper than loading the
+     * whole image to show a thumbnail.
+     *
+     * @param filename    the location of the image file to read
+     * @param subsampling the distance between kept pixels; 1 keeps them all
+     */
+    public PixelPicture(String filename, int subsampling) {
+        load(filename, subsampling);
     }
 
     /**
@@ -56,45 +140,219 @@ public class PixelPicture {
         setBitmap(bmp);
     }
 
+    private PixelPicture(int width, int height, int[] rgb) {
+        adopt(width, height, rgb);
+    }
+
+    /**
+     * Creates a picture that uses the given packed raster as its storage,
+     * without copying it. The array holds one {@code 0xRRGGBB} int per pixel
+     * in left-to-right, top-to-bottom order; the high byte is ignored.
+     *
+     * Because the array is adopted rather than copied, the caller must not
+     * modify it afterwards, otherwise the picture would no longer be
+     * immutable.
+     *
+     * @param width  the width of the image
+     * @param height the height of the image
+     * @param rgb    the packed pixels, of length {@code width * height}
+     * @return a picture backed by {@code rgb}
+     */
+    public static PixelPicture fromPacked(int width, int height, int[] rgb) {
+        if (height <= 0) {
+            throw new IndexOutOfBoundsException(
+                    "expected non-empty image, got height of " + height
+            );
+        }
+        if (width <= 0) {
+            throw new IndexOutOfBoundsException(
+                    "expected non-empty image, got width of " + width
+            );
+        }
+        if (rgb.length != width * height) {
+            throw new IllegalArgumentException(
+                    "expected " + width * height + " pixels, got " + rgb.length
+            );
+        }
+        return new PixelPicture(width, height, rgb);
+    }
+
+    private PixelPicture(int width, int height, Deferred pending) {
+        this.width = width;
+        this.height = height;
+        this.pending = pending;
+    }
+
+    private void adopt(int width, int height, int[] rgb) {
+        DataBufferInt buffer = new DataBufferInt(rgb, rgb.length);
+        WritableRaster raster = Raster.createPackedRaster(
+                buffer, width, height, width, RGB_MASKS, null
+        );
+        bufferedImage = new BufferedImage(RGB_MODEL, raster, false, null);
+        this.width = width;
+        this.height = height;
+        data = rgb;
+    }
+
+    /**
+     * Selects whether rotating, mirroring and adding a border are lazy.
+     *
+     * @param on true to defer computing pixels until they are read
+     */
+    public static void setLazyViews(boolean on) {
+        lazyViews = on;
+    }
+
+    /**
+     * @return whether rotating, mirroring and adding a border are lazy
+     */
+    public static boolean isLazyViews() {
+        return lazyViews;
+    }
+
+    /**
+     * Rotates or mirrors this picture. If lazy views are on, no pixels are
+     * moved until the result is read.
+     *
+     * @param o the orientation to apply
+     * @return the reoriented picture
+     */
+    PixelPicture reorient(Orientation o) {
+        int w = getWidth();
+        int h = getHeight();
+        int tw = o.swapsAxes() ? h : w;
+        int th = o.swapsAxes() ? w : h;
+        if (!lazyViews) {
+            return fromPacked(tw, th, o.apply(packed(), w, h));
+        }
+
+        Deferred p;
+        synchronized (this) {
+            p = data == null ? pending : null;
+        }
+        if (p instanceof Reoriented) {
+            // turn the original once rather than twice
+            Reoriented r = (Reoriented) p;
+            Orientation combined = r.orientation.then(o);
+            if (combined == Orientation.IDENTITY) {
+                return fromPacked(r.width, r.height, r.source);
+            }
+            return new PixelPicture(tw, th, new Reoriented(r.source, r.width, r.height, combined));
+        }
+        return new PixelPicture(tw, th, new Reoriented(packed(), w, h, o));
+    }
+
+    /**
+     * Surrounds this picture with a border. If lazy views are on, no pixels
+     * are written until the result is read.
+     *
+     * @param borderWidth the width of the border, not negative
+     * @param color       the packed color of the border
+     * @return the picture with a border
+     */
+    PixelPicture withBorder(int borderWidth, int color) {
+        int tw = getWidth() + 2 * borderWidth;
+        int th = getHeight() + 2 * borderWidth;
+        if (!lazyViews) {
+            return fromPacked(
+                    tw, th,
+                    PackedKernels.border(packed(), getWidth(), getHeight(), borderWidth, color)
+            );
+        }
+
+        Deferred p;
+        synchronized (this) {
+            p = data == null ? pending : null;
+        }
+        if (p instanceof Bordered && ((Bordered) p).color == color) {
+            // a border around a border of the same color is one wider border
+            Bordered b = (Bordered) p;
+            return new PixelPicture(
+                    tw, th, new Bordered(b.inner, b.borderWidth + borderWidth, color)
+            );
+        }
+        return new PixelPicture(tw, th, new Bordered(this, borderWidth, color));
+    }
+
+    /**
+     * @return whether this is a lazy view whose pixels have not been computed
+     */
+    boolean isPending() {
+        return data == null;
+    }
+
+    /**
+     * Computes the pixels of a lazy view.
+     */
+    private synchronized void materialize() {
+        if (data == null) {
+            int[] rgb = pending.render();
+            pending = null;
+            adopt(width, height, rgb);
+        }
+    }
+
     /**
      * @return the width of the image.
      */
     public int getWidth() {
-        return bufferedImage.getWidth();
+        return width;
     }
 
     /**
      * @return the height of the image.
      */
     public int getHeight() {
-        return bufferedImage.getHeight();
+        return height;
     }
 
-    private void load(String filename) {
-        ImageIcon icon;
+    private void load(String filename, int subsampling) {
+        if (subsampling < 1) {
+            throw new IllegalArgumentException("subsampling must be positive, got " + subsampling);
+        }
 
-        try {
-            if ((new File(filename)).exists()) {
-                icon = new ImageIcon(filename);
-            } else {
-                java.net.URL u = new java.net.URL(filename);
-                icon = new ImageIcon(u);
+        File file = new File(filename);
+        if (RawRaster.isRawRaster(file)) {
+            try {
+                RawRaster raw = RawRaster.open(file);
+                int[] rgb = raw.copyPixels();
+                if (subsampling == 1) {
+                    adopt(raw.getWidth(), raw.getHeight(), rgb);
+                } else {
+                    subsample(raw.getWidth(), raw.getHeight(), rgb, subsampling);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
             }
+            return;
+        }
+
+        BufferedImage image;
+        try (InputStream in = file.exists()
+                ? new FileInputStream(file)
+                : new java.net.URL(filename).openStream();
+                ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            image = ImageDecoder.read(stream, subsampling);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
 
-        Image image = icon.getImage();
-        bufferedImage = new BufferedImage(
-                image.getWidth(null),
-                image.getHeight(null),
-                BufferedImage.TYPE_INT_RGB
-        );
-        Graphics g = bufferedImage.getGraphics();
-        g.drawImage(image, 0, 0, null);
-        g.dispose();
+        int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        adopt(image.getWidth(), image.getHeight(), rgb);
+    }
 
-        raster = bufferedImage.getRaster();
+    private void subsample(int w, int h, int[] src, int step) {
+        int sw = (w + step - 1) / step;
+        int sh = (h + step - 1) / step;
+        int[] rgb = new int[sw * sh];
+        for (int row = 0; row < sh; row++) {
+            int s = row * step * w;
+            int d = row * sw;
+            for (int col = 0; col < sw; col++) {
+                rgb[d + col] = src[s + col * step];
+            }
+        }
+        adopt(sw, sh, rgb);
     }
 
     private void setBitmap(Pixel[][] bmp) {
@@ -109,8 +367,7 @@ public class PixelPicture {
             throw new IndexOutOfBoundsException("expected non-empty image, got width of 0");
         }
 
-        bufferedImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-        raster = bufferedImage.getRaster();
+        int[] rgb = new int[w * h];
 
         for (int y = 0; y < h; y++) {
             if (bmp[y].length != w) {
@@ -119,13 +376,13 @@ public class PixelPicture {
                 );
             }
 
+            int base = y * w;
             for (int x = 0; x < w; x++) {
-                if (bmp[y][x].getComponents() == null) {
-                    throw new UnsupportedOperationException("please implement the Pixel class");
-                }
-                raster.setPixel(x, y, bmp[y][x].getComponents());
+                rgb[base + x] = bmp[y][x].toRGB();
             }
         }
+
+        adopt(w, h, rgb);
     }
 
     /**
@@ -143,17 +400,112 @@ public class PixelPicture {
         int w = getWidth();
         int h = getHeight();
 
+        int[] rgb = packed();
         Pixel[][] bmp = new Pixel[h][w];
 
-        for (int col = 0; col < w; col++) {
-            for (int row = 0; row < h; row++) {
-                bmp[row][col] = new Pixel(raster.getPixel(col, row, (int[]) null));
+        for (int row = 0; row < h; row++) {
+            int base = row * w;
+            for (int col = 0; col < w; col++) {
+                bmp[row][col] = Pixel.fromRGB(rgb[base + col]);
             }
         }
 
         return bmp;
     }
 
+    /**
+     * Gets a read-only view of the packed raster. No pixels are copied. Each
+     * element is a {@code 0xRRGGBB} int (use {@link Pixel#red(int)} and
+     * friends to unpack it); the pixel at (x,y) is at index
+     * {@code y * getWidth() + x}.
+     *
+     * @return a read-only buffer over this image's pixels
+     */
+    public IntBuffer getPackedView() {
+        return IntBuffer.wrap(packed()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets a copy of the packed raster that the caller is free to modify,
+     * for example as the destination of a filter that is then wrapped with
+     * {@link #fromPacked(int, int, int[])}.
+     *
+     * @return a fresh array of {@code 0xRRGGBB} ints in row-major order
+     */
+    public int[] getPackedPixels() {
+        return packed().clone();
+    }
+
+    /**
+     * Direct access to the packed raster for the filters in this package.
+     * Callers must treat the result as read-only.
+     */
+    int[] packed() {
+        int[] rgb = data;
+        if (rgb == null) {
+            materialize();
+            rgb = data;
+        }
+        return rgb;
+    }
+
+    /**
+     * The image backing this picture, for drawing it without a copy.
+     * Callers must not modify it.
+     */
+    BufferedImage image() {
+        packed();
+        return bufferedImage;
+    }
+
+    /**
+     * Finds the pixels that differ between two pictures of the same size.
+     *
+     * @param p0 first image to compare
+     * @param p1 second image to compare
+     * @return the smallest rectangle holding every pixel that differs, which
+     *         is empty if the pictures are equal, or null if they differ in
+     *         size
+     */
+    static Rectangle changedBounds(PixelPicture p0, PixelPicture p1) {
+        int w = p0.getWidth();
+        int h = p0.getHeight();
+        if (p1.getWidth() != w || p1.getHeight() != h) {
+            return null;
+        }
+        int[] a = p0.packed();
+        int[] b = p1.packed();
+
+        int top = h;
+        int bottom = -1;
+        int left = w;
+        int right = -1;
+        for (int row = 0; row < h; row++) {
+            int base = row * w;
+            // scanning in from both ends, a row changed throughout costs
+            // almost nothing
+            int first = 0;
+            while (first < w && a[base + first] == b[base + first]) {
+                first++;
+            }
+            if (first == w) {
+                continue;
+            }
+            int last = w - 1;
+            while (a[base + last] == b[base + last]) {
+                last--;
+            }
+            top = Math.min(top, row);
+            bottom = row;
+            left = Math.min(left, first);
+            right = Math.max(right, last);
+        }
+        if (bottom < 0) {
+            return new Rectangle();
+        }
+        return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+    }
+
     /**
      * Creates an ImageIcon, suitable for display by Swing components.
      * 
@@ -181,18 +533,14 @@ public class PixelPicture {
             return Integer.MAX_VALUE;
         }
         int diff = 0;
-        Pixel[][] b0 = p0.getBitmap();
-        Pixel[][] b1 = p1.getBitmap();
-        int w = p0.getWidth();
-        int h = p0.getHeight();
-        for (int row = 0; row < h; row++) {
-            for (int col = 0; col < w; col++) {
-                Pixel pix0 = b0[row][col];
-                Pixel pix1 = b1[row][col];
-                diff += Math.abs(pix0.getRed() - pix1.getRed()) +
-                        Math.abs(pix0.getBlue() - pix1.getBlue()) +
-                        Math.abs(pix0.getGreen() - pix1.getGreen());
-            }
+        int[] b0 = p0.packed();
+        int[] b1 = p1.packed();
+        for (int i = 0; i < b0.length; i++) {
+            int pix0 = b0[i];
+            int pix1 = b1[i];
+            diff += Math.abs(Pixel.red(pix0) - Pixel.red(pix1)) +
+                    Math.abs(Pixel.blue(pix0) - Pixel.blue(pix1)) +
+                    Math.abs(Pixel.green(pix0) - Pixel.green(pix1));
         }
         return diff;
     }
@@ -231,6 +579,11 @@ public class PixelPicture {
         }
 
         try {
+            if (type.equalsIgnoreCase(RawRaster.SUFFIX)) {
+                RawRaster.write(this, new File(filename));
+                return;
+            }
+            packed();
             ImageIO.write(bufferedImage, type, new File(filename));
         } catch (IOException e) {
             throw new RuntimeException(e);
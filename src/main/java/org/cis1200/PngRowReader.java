@@ -0,0 +1,393 @@
+package org.cis1200;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes a PNG file a row at a time, in a single pass from the top of the
+ * file to the bottom, so that only the row being decoded and the one above
+ * it are in memory.
+ * <p>
+ * ImageIO can only decode a band of rows of a PNG by inflating every row
+ * above the band as well, so reading a large PNG band by band costs time
+ * proportional to the square of its height. This reader never goes back:
+ * asking for the next rows continues where the last request stopped.
+ * <p>
+ * Pixels come out as {@link ImageDecoder} gives them, so a picture read
+ * row by row is the same as one loaded whole: palette entries beyond the
+ * end of the palette repeat its last entry, a transparent color given for
+ * an RGB picture is ignored, and translucent pixels are drawn over black.
+ * Only non-interlaced PNGs with at most 8 bits per sample and no
+ * transparent gray are read this way; {@link #open(File)} returns null for
+ * others. (The rows of an interlaced PNG are spread over the whole file.)
+ */
+public class PngRowReader implements Closeable {
+
+    private static final long SIGNATURE = 0x89504e470d0a1a0aL;
+
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504c5445;
+    private static final int TRNS = 0x74524e53;
+    private static final int IDAT = 0x49444154;
+
+    private static final int GRAY = 0;
+    private static final int RGB = 2;
+    private static final int PALETTE = 3;
+    private static final int GRAY_ALPHA = 4;
+    private static final int RGB_ALPHA = 6;
+
+    private final DataInputStream file;
+    private final InputStream pixels;
+    private final int width;
+    private final int height;
+    private final int depth;
+    private final int colorType;
+    private final int[] palette;
+
+    // bytes per complete pixel, at least 1, for the filters
+    private final int filterStride;
+
+    private byte[] row;
+    private byte[] above;
+    private int rowsRead = 0;
+
+    private PngRowReader(
+            DataInputStream file, int firstChunk, int width, int height, int depth,
+            int colorType, int[] palette, int channels
+    ) {
+        this.file = file;
+        this.pixels = new InflaterInputStream(new DataChunks(file, firstChunk));
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        this.colorType = colorType;
+        this.palette = palette;
+        this.filterStride = Math.max(1, channels * depth / 8);
+        int rowBytes = (int) (((long) width * channels * depth + 7) / 8);
+        this.row = new byte[rowBytes];
+        this.above = new byte[rowBytes];
+    }
+
+    /**
+     * Opens a PNG file and reads its header, up to the first row.
+     *
+     * @param f the file
+     * @return a reader positioned before the first row, or null if the file
+     *         is not a PNG this class can read by rows
+     * @throws IOException if the file cannot be read or is a damaged PNG
+     */
+    public static PngRowReader open(File f) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+        PngRowReader reader = null;
+        try {
+            reader = readHeader(in);
+            return reader;
+        } catch (EOFException e) {
+            throw new IOException(f + " ends before its pixels", e);
+        } finally {
+            if (reader == null) {
+                in.close();
+            }
+        }
+    }
+
+    private static PngRowReader readHeader(DataInputStream in) throws IOException {
+        byte[] signature = in.readNBytes(8);
+        if (signature.length < 8 || ByteBuffer.wrap(signature).getLong() != SIGNATURE) {
+            return null;
+        }
+        if (in.readInt() != 13 || in.readInt() != IHDR) {
+            throw new IOException("the PNG does not start with a header");
+        }
+        int width = in.readInt();
+        int height = in.readInt();
+        int depth = in.readUnsignedByte();
+        int colorType = in.readUnsignedByte();
+        in.readUnsignedByte(); // compression, always deflate
+        in.readUnsignedByte(); // filter method, always adaptive
+        int interlace = in.readUnsignedByte();
+        in.readInt(); // CRC
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IOException("bad size " + width + "x" + height);
+        }
+
+        int channels;
+        switch (colorType) {
+            case GRAY:
+            case PALETTE:
+                channels = 1;
+                break;
+            case GRAY_ALPHA:
+                channels = 2;
+                break;
+            case RGB:
+                channels = 3;
+                break;
+            case RGB_ALPHA:
+                channels = 4;
+                break;
+            default:
+                throw new IOException("bad color type " + colorType);
+        }
+        if (interlace != 0 || depth > 8 || colorType == GRAY_ALPHA) {
+            return null;
+        }
+
+        byte[] plte = null;
+        byte[] alpha = null;
+        while (true) {
+            int length = in.readInt();
+            int type = in.readInt();
+            if (length < 0) {
+                throw new IOException("bad chunk length " + length);
+            }
+            if (type == IDAT) {
+                int[] palette = null;
+                if (colorType == PALETTE) {
+                    if (plte == null) {
+                        throw new IOException("palette picture without a palette");
+                    }
+                    palette = palette(plte, alpha, depth);
+                } else if (alpha != null && colorType == GRAY) {
+                    return null;
+                }
+                return new PngRowReader(
+                        in, length, width, height, depth, colorType, palette, channels
+                );
+            }
+            byte[] data = new byte[length];
+            in.readFully(data);
+            in.readInt(); // CRC
+            if (type == PLTE) {
+                plte = data;
+            } else if (type == TRNS) {
+                alpha = data;
+            }
+        }
+    }
+
+    // the palette as packed pixels, drawn over black and padded to 2^depth
+    private static int[] palette(byte[] plte, byte[] alpha, int depth) throws IOException {
+        int n = Math.min(plte.length / 3, 1 << depth);
+        if (n == 0) {
+            throw new IOException("empty palette");
+        }
+        int[] colors = new int[1 << depth];
+        for (int i = 0; i < n; i++) {
+            int a = alpha != null && i < alpha.length ? alpha[i] & 0xff : 0xff;
+            colors[i] = over(
+                    a, plte[3 * i] & 0xff, plte[3 * i + 1] & 0xff, plte[3 * i + 2] & 0xff
+            );
+        }
+        Arrays.fill(colors, n, colors.length, colors[n - 1]);
+        return colors;
+    }
+
+    // a color with the given alpha, drawn over black as Java2D draws it
+    private static int over(int a, int r, int g, int b) {
+        if (a == 0xff) {
+            return r << 16 | g << 8 | b;
+        }
+        return (a * r + 127) / 255 << 16 | (a * g + 127) / 255 << 8 | (a * b + 127) / 255;
+    }
+
+    /**
+     * @return the width of the picture
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the picture
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return how many rows have been read so far
+     */
+    public int getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Reads the next rows of the picture.
+     *
+     * @param dst    where to put the packed pixels of the rows
+     * @param offset where in {@code dst} the first row goes
+     * @param rows   how many rows to read
+     * @throws IOException if the file is damaged or has fewer rows left
+     */
+    public void readRows(int[] dst, int offset, int rows) throws IOException {
+        if (rows < 0 || rows > height - rowsRead) {
+            throw new IllegalArgumentException(
+                    "cannot read " + rows + " rows after row " + rowsRead + " of " + height
+            );
+        }
+        for (int r = 0; r < rows; r++) {
+            byte[] t = above;
+            above = row;
+            row = t;
+            int filter = pixels.read();
+            if (filter < 0) {
+                throw new IOException("the pixels end after row " + rowsRead);
+            }
+            readFully(row);
+            unfilter(filter, row, above, filterStride);
+            unpack(dst, offset + r * width);
+            rowsRead++;
+        }
+    }
+
+    private void readFully(byte[] b) throws IOException {
+        for (int n = 0; n < b.length;) {
+            int got = pixels.read(b, n, b.length - n);
+            if (got < 0) {
+                throw new IOException("the pixels end in row " + rowsRead);
+            }
+            n += got;
+        }
+    }
+
+    private static void unfilter(int filter, byte[] row, byte[] above, int bpp)
+            throws IOException {
+        int n = row.length;
+        switch (filter) {
+            case 0:
+                break;
+            case 1:
+                for (int i = bpp; i < n; i++) {
+                    row[i] += row[i - bpp];
+                }
+                break;
+            case 2:
+                for (int i = 0; i < n; i++) {
+                    row[i] += above[i];
+                }
+                break;
+            case 3:
+                for (int i = 0; i < n; i++) {
+                    int left = i < bpp ? 0 : row[i - bpp] & 0xff;
+                    row[i] += (left + (above[i] & 0xff)) >> 1;
+                }
+                break;
+            case 4:
+                for (int i = 0; i < n; i++) {
+                    int a = i < bpp ? 0 : row[i - bpp] & 0xff;
+                    int b = above[i] & 0xff;
+                    int c = i < bpp ? 0 : above[i - bpp] & 0xff;
+                    int p = a + b - c;
+                    int pa = Math.abs(p - a);
+                    int pb = Math.abs(p - b);
+                    int pc = Math.abs(p - c);
+                    row[i] += pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+                }
+                break;
+            default:
+                throw new IOException("bad filter type " + filter);
+        }
+    }
+
+    private void unpack(int[] dst, int base) {
+        byte[] b = row;
+        switch (colorType) {
+            case RGB:
+                for (int col = 0, i = 0; col < width; col++, i += 3) {
+                    dst[base + col] = (b[i] & 0xff) << 16 | (b[i + 1] & 0xff) << 8
+                            | b[i + 2] & 0xff;
+                }
+                break;
+            case RGB_ALPHA:
+                for (int col = 0, i = 0; col < width; col++, i += 4) {
+                    dst[base + col] = over(
+                            b[i + 3] & 0xff, b[i] & 0xff, b[i + 1] & 0xff, b[i + 2] & 0xff
+                    );
+                }
+                break;
+            default:
+                // one sample of 1, 2, 4 or 8 bits per pixel
+                int mask = (1 << depth) - 1;
+                int perByte = 8 / depth;
+                for (int col = 0; col < width; col++) {
+                    int shift = 8 - depth * (col % perByte + 1);
+                    int v = (b[col / perByte] & 0xff) >> shift & mask;
+                    if (colorType == PALETTE) {
+                        dst[base + col] = palette[v];
+                    } else {
+                        int gray = v * 255 / mask;
+                        dst[base + col] = gray << 16 | gray << 8 | gray;
+                    }
+                }
+                break;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * The data of consecutive IDAT chunks, as one stream.
+     */
+    private static final class DataChunks extends InputStream {
+        private final DataInputStream in;
+
+        // bytes left in the current chunk, or -1 after the last chunk
+        private int left;
+
+        private DataChunks(DataInputStream in, int firstChunk) {
+            this.in = in;
+            this.left = firstChunk;
+        }
+
+        private boolean next() throws IOException {
+            while (left == 0) {
+                in.readInt(); // CRC of the chunk just read
+                int length = in.readInt();
+                if (in.readInt() != IDAT) {
+                    left = -1;
+                    return false;
+                }
+                left = length;
+            }
+            return left > 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!next()) {
+                return -1;
+            }
+            left--;
+            return in.readUnsignedByte();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!next()) {
+                return -1;
+            }
+            int n = in.read(b, off, Math.min(len, left));
+            if (n < 0) {
+                throw new EOFException();
+            }
+            left -= n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package org.cis1200;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A double-ended queue of (row, col) points stored in a growable ring buffer
+ * of ints.
+ *
+ * Unlike PointQueue's original LinkedList, no object is created per point:
+ * each point is two adjacent ints in a single array, and the array only
+ * grows (by doubling) when it is full. Adding and removing at either end are
+ * O(1). Points are read through accessors such as {@link #firstRow()} or
+ * {@link #row(int)}, or visited with {@link #forEach(PointVisitor)}, so
+ * reading never allocates either. {@link #clear()} keeps the buffer, so one
+ * deque can be reused across many operations.
+ */
+public class PointDeque {
+
+    /**
+     * Receives the points of a deque, in order, from
+     * {@link PointDeque#forEach(PointVisitor)}.
+     */
+    @FunctionalInterface
+    public interface PointVisitor {
+        /**
+         * @param row the row of the point
+         * @param col the column of the point
+         */
+        void accept(int row, int col);
+    }
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // points live at buf[2 * ((head + i) & mask)] and the int after it
+    private int[] buf;
+    private int mask;
+    private int head;
+    private int size;
+
+    /**
+     * Creates an empty deque.
+     */
+    public PointDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty deque with room for at least {@code capacity} points
+     * before it needs to grow.
+     *
+     * @param capacity the initial capacity
+     */
+    public PointDeque(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        buf = new int[cap * 2];
+        mask = cap - 1;
+    }
+
+    /**
+     * Adds a point to the back of the deque.
+     *
+     * @param row the row of the point
+     * @param col the column of the point
+     */
+    public void addLast(int row, int col) {
+        if (size > mask) {
+            grow();
+        }
+        int slot = 2 * ((head + size) & mask);
+        buf[slot] = row;
+        buf[slot + 1] = col;
+        size++;
+    }
+
+    /**
+     * Adds a point to the front of the deque.
+     *
+     * @param row the row of the point
+     * @param col the column of the point
+     */
+    public void addFirst(int row, int col) {
+        if (size > mask) {
+            grow();
+        }
+        head = (head - 1) & mask;
+        buf[2 * head] = row;
+        buf[2 * head + 1] = col;
+        size++;
+    }
+
+    /**
+     * Adds every point of another deque to the back of this one, in order.
+     *
+     * @param other the points to add; may be this deque
+     */
+    public void addAll(PointDeque other) {
+        int n = other.size;
+        while (size + n > mask + 1) {
+            grow();
+        }
+        int[] from = other.buf;
+        int fromMask = other.mask;
+        int fromHead = other.head;
+        for (int i = 0; i < n; i++) {
+            int src = 2 * ((fromHead + i) & fromMask);
+            int dst = 2 * ((head + size) & mask);
+            buf[dst] = from[src];
+            buf[dst + 1] = from[src + 1];
+            size++;
+        }
+    }
+
+    /**
+     * @return the row of the point at the front of the deque
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int firstRow() {
+        checkNotEmpty();
+        return buf[2 * head];
+    }
+
+    /**
+     * @return the column of the point at the front of the deque
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int firstCol() {
+        checkNotEmpty();
+        return buf[2 * head + 1];
+    }
+
+    /**
+     * Removes the point at the front of the deque. Read it first with
+     * {@link #firstRow()} and {@link #firstCol()}.
+     *
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public void removeFirst() {
+        checkNotEmpty();
+        head = (head + 1) & mask;
+        size--;
+    }
+
+    /**
+     * @return the row of the point at the back of the deque
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int lastRow() {
+        checkNotEmpty();
+        return buf[2 * ((head + size - 1) & mask)];
+    }
+
+    /**
+     * @return the column of the point at the back of the deque
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public int lastCol() {
+        checkNotEmpty();
+        return buf[2 * ((head + size - 1) & mask) + 1];
+    }
+
+    /**
+     * Removes the point at the back of the deque. Read it first with
+     * {@link #lastRow()} and {@link #lastCol()}.
+     *
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public void removeLast() {
+        checkNotEmpty();
+        size--;
+    }
+
+    /**
+     * Gets the row of the point at a position in the deque.
+     *
+     * @param index the position, counting from 0 at the front
+     * @return the row of the point
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    public int row(int index) {
+        return buf[slot(index)];
+    }
+
+    /**
+     * Gets the column of the point at a position in the deque.
+     *
+     * @param index the position, counting from 0 at the front
+     * @return the column of the point
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    public int col(int index) {
+        return buf[slot(index) + 1];
+    }
+
+    /**
+     * Removes the point at a position in the deque. Removing from either end
+     * is O(1); otherwise the points on the shorter side are shifted over.
+     *
+     * @param index the position, counting from 0 at the front
+     * @throws IndexOutOfBoundsException if there is no such position
+     */
+    public void removeAt(int index) {
+        slot(index);
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                copySlot(i - 1, i);
+            }
+            head = (head + 1) & mask;
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                copySlot(i + 1, i);
+            }
+        }
+        size--;
+    }
+
+    /**
+     * Determines whether the deque holds a given point. This is a linear
+     * scan.
+     *
+     * @param row the row of the point
+     * @param col the column of the point
+     * @return whether the point is in the deque
+     */
+    public boolean contains(int row, int col) {
+        for (int i = 0; i < size; i++) {
+            int s = 2 * ((head + i) & mask);
+            if (buf[s] == row && buf[s + 1] == col) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visits every point from front to back.
+     *
+     * @param visitor called once per point
+     */
+    public void forEach(PointVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            int s = 2 * ((head + i) & mask);
+            visitor.accept(buf[s], buf[s + 1]);
+        }
+    }
+
+    /**
+     * @return whether the deque is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of points in the deque
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every point, keeping the allocated buffer for reuse.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return 2 * ((head + index) & mask);
+    }
+
+    private void copySlot(int from, int to) {
+        int f = 2 * ((head + from) & mask);
+        int t = 2 * ((head + to) & mask);
+        buf[t] = buf[f];
+        buf[t + 1] = buf[f + 1];
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException("empty deque");
+        }
+    }
+
+    private void grow() {
+        int cap = mask + 1;
+        int[] bigger = new int[buf.length * 2];
+        // unwrap so the front of the deque is at index 0
+        int firstRun = Math.min(size, cap - head);
+        System.arraycopy(buf, 2 * head, bigger, 0, 2 * firstRun);
+        System.arraycopy(buf, 0, bigger, 2 * firstRun, 2 * (size - firstRun));
+        buf = bigger;
+        mask = cap * 2 - 1;
+        head = 0;
+    }
+}
@@ -0,0 +1,61 @@
+package org.cis1200;
+
+/**
+ * A per-pixel color operation: the output color at (row, col) depends only
+ * on the input color at (row, col) and the position itself.
+ * <p>
+ * Colors are packed {@code 0xRRGGBB} ints and results must already be
+ * clipped, as if they had been through a Pixel. Operations that depend on
+ * the size of the picture (such as a vignette) override {@link #bind}, which
+ * a Pipeline calls once per picture before applying the operation.
+ * <p>
+ * See PointOps for the operations that correspond to the manipulations.
+ */
+@FunctionalInterface
+public interface PointOp {
+
+    /**
+     * Computes the new color of one pixel.
+     *
+     * @param rgb the current packed color of the pixel
+     * @param row the row of the pixel
+     * @param col the column of the pixel
+     * @return the new packed color
+     */
+    int apply(int rgb, int row, int col);
+
+    /**
+     * Specializes this operation to a picture of a given size.
+     *
+     * @param width  the width of the picture
+     * @param height the height of the picture
+     * @return an operation ready to apply to that picture
+     */
+    default PointOp bind(int width, int height) {
+        return this;
+    }
+
+    /**
+     * Composes two operations into one that applies this one and then
+     * {@code after}, without an intermediate picture.
+     *
+     * @param after the operation to apply to the result of this one
+     * @return the composed operation
+     */
+    default PointOp andThen(PointOp after) {
+        PointOp first = this;
+        return new PointOp() {
+            @Override
+            public int apply(int rgb, int row, int col) {
+                return after.apply(first.apply(rgb, row, col), row, col);
+            }
+
+            @Override
+            public PointOp bind(int width, int height) {
+                PointOp a = first.bind(width, height);
+                PointOp b = after.bind(width, height);
+                return (rgb, row, col) -> b.apply(a.apply(rgb, row, col), row, col);
+            }
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package org.cis1200;
+
+/**
+ * The per-pixel manipulations as PointOps, for use in a Pipeline.
+ * <p>
+ * Each operation computes exactly what the corresponding method of
+ * SimpleManipulations computes for one pixel, so a fused pipeline of them
+ * gives the same picture as calling the methods one after another.
+ * <p>
+ * The operations that depend only on the color are ColorLuts, so
+ * consecutive ones in a pipeline fuse into a single table lookup.
+ */
+public class PointOps {
+
+    private PointOps() {
+    }
+
+    /**
+     * @return an operation that leaves every pixel unchanged
+     */
+    public static PointOp identity() {
+        return ColorLut.identity();
+    }
+
+    /**
+     * @return the per-pixel form of SimpleManipulations.grayScaleLuminosity
+     */
+    public static PointOp grayScaleLuminosity() {
+        return ColorLut.grayScaleLuminosity();
+    }
+
+    /**
+     * @return the per-pixel form of SimpleManipulations.grayScaleAverage
+     */
+    public static PointOp grayScaleAverage() {
+        return ColorLut.grayScaleAverage();
+    }
+
+    /**
+     * @return the per-pixel form of SimpleManipulations.invertColors
+     */
+    public static PointOp invertColors() {
+        return ColorLut.invertColors();
+    }
+
+    /**
+     * The per-pixel form of SimpleManipulations.scaleColors.
+     *
+     * @param rfactor red factor
+     * @param gfactor green factor
+     * @param bfactor blue factor
+     * @return the operation
+     */
+    public static PointOp scaleColors(double rfactor, double gfactor, double bfactor) {
+        return ColorLut.scaleColors(rfactor, gfactor, bfactor);
+    }
+
+    /**
+     * The per-pixel form of SimpleManipulations.alphaBlend, blending the
+     * results of two operations on the same pixel. For example,
+     * {@code blend(0.5, identity(), vignette())} is
+     * {@code alphaBlend(0.5, p, vignette(p))}.
+     *
+     * @param alpha weight of {@code a}
+     * @param a     the operation giving the first picture
+     * @param b     the operation giving the second picture
+     * @return the operation
+     */
+    public static PointOp blend(double alpha, PointOp a, PointOp b) {
+        return new PointOp() {
+            @Override
+            public int apply(int rgb, int row, int col) {
+                return PackedKernels.blend(alpha, a.apply(rgb, row, col), b.apply(rgb, row, col));
+            }
+
+            @Override
+            public PointOp bind(int width, int height) {
+                PointOp ba = a.bind(width, height);
+                PointOp bb = b.bind(width, height);
+                return (rgb, row, col) -> PackedKernels.blend(
+                        alpha, ba.apply(rgb, row, col), bb.apply(rgb, row, col)
+                );
+            }
+        };
+    }
+
+    /**
+     * The per-pixel form of SimpleManipulations.vignette. It must be bound
+     * to a picture size before use, which a Pipeline does automatically.
+     *
+     * @return the operation
+     */
+    public static PointOp vignette() {
+        return new PointOp() {
+            @Override
+            public int apply(int rgb, int row, int col) {
+                throw new IllegalStateException("vignette must be bound to a picture size");
+            }
+
+            @Override
+            public PointOp bind(int width, int height) {
+                // a single pixel has no edges to darken
+                if (width == 1 && height == 1) {
+                    return identity();
+                }
+                double[] q = VignetteCache.quadrant(width, height);
+                int qw = (width + 1) / 2;
+                int qh = (height + 1) / 2;
+                return (rgb, row, col) -> {
+                    int qrow = row < qh ? row : height - 1 - row;
+                    int qcol = col < qw ? col : width - 1 - col;
+                    double factor = q[qrow * qw + qcol];
+                    return PackedKernels.scale(rgb, factor, factor, factor);
+                };
+            }
+        };
+    }
+}
@@ -1,23 +1,22 @@
 package org.cis1200;
 
-import java.util.LinkedList;
-import java.util.List;
-
 /**
  * This is an implementation of a Queue in Java that uses a built-in data
  * structure about which we haven't learned yet. You should assume that it
  * works just like our Queues in OCaml. Each element in the queue is an array
  * of two ints.
  *
- * This class will be useful to you when you write the flood() function in
- * Manipulate.java.
- * 
- * You do not need to modify this file.
+ * This class is kept for compatibility; it is now a thin adapter over
+ * PointDeque, which stores the points without an int[] per point. New code
+ * should use PointDeque directly. Because points are stored by value, the
+ * arrays returned by {@link #get(int)} and {@link #remove(int)} are fresh
+ * copies, and {@link #contains(int[])} compares coordinates rather than
+ * array identity.
  */
 public class PointQueue {
 
     // The internal data structure
-    private final List<int[]> l = new LinkedList<>();
+    private final PointDeque q = new PointDeque();
 
     /**
      * Add an element to the queue.
@@ -25,7 +24,7 @@ public class PointQueue {
      * @param v The int array to add to the queue.
      */
     public void add(int[] v) {
-        l.add(v);
+        q.addLast(v[0], v[1]);
     }
 
     /**
@@ -34,7 +33,7 @@ public class PointQueue {
      * @return true if the queue is empty; false otherwise.
      */
     public boolean isEmpty() {
-        return l.isEmpty();
+        return q.isEmpty();
     }
 
     /**
@@ -44,7 +43,9 @@ public class PointQueue {
      * @return The element that was removed from the list.
      */
     public int[] remove(int index) {
-        return l.remove(index);
+        int[] v = get(index);
+        q.removeAt(index);
+        return v;
     }
 
     /**
@@ -53,7 +54,7 @@ public class PointQueue {
      * @return The size of the queue.
      */
     public int size() {
-        return l.size();
+        return q.size();
     }
 
     /**
@@ -63,7 +64,7 @@ public class PointQueue {
      * @return true if the value is in the queue; false otherwise.
      */
     public boolean contains(int[] c) {
-        return l.contains(c);
+        return q.contains(c[0], c[1]);
     }
 
     /**
@@ -73,7 +74,7 @@ public class PointQueue {
      * @return The element at the given location in the queue.
      */
     public int[] get(int index) {
-        return l.get(index);
+        return new int[] { q.row(index), q.col(index) };
     }
 
     /**
@@ -83,9 +84,7 @@ public class PointQueue {
      */
     public PointQueue deepCopy() {
         PointQueue iQ = new PointQueue();
-        for (int[] i : l) {
-            iQ.add(new int[] { i[0], i[1] });
-        }
+        iQ.q.addAll(q);
         return iQ;
     }
 
@@ -0,0 +1,222 @@
+package org.cis1200;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A raw raster file, for handing pictures between processing stages
+ * without encoding or decoding them.
+ * <p>
+ * The file is a 16-byte header followed by the pixels, all little-endian:
+ * <pre>
+ * bytes 0-3    the magic number "PXR1"
+ * bytes 4-7    the width
+ * bytes 8-11   the height
+ * bytes 12-15  reserved, 0
+ * bytes 16-    width * height packed 0x00RRGGBB ints, in row-major order
+ * </pre>
+ * Files are read and written through memory mappings, so the pixels move
+ * between the page cache and the picture in one bulk copy. PixelPicture
+ * reads such a file when it starts with the magic number, and
+ * {@link PixelPicture#save(String)} writes one for names ending in
+ * {@code .pxr}.
+ * <p>
+ * A file is mapped whole, and a single mapping is limited to 2GB, so a raw
+ * raster holds at most {@link #MAX_PIXELS} pixels (a little over 536
+ * million, such as 23170x23170). Larger rasters are refused with an
+ * IOException when written or opened.
+ */
+public class RawRaster {
+
+    /** The file name suffix for raw rasters. */
+    public static final String SUFFIX = "pxr";
+
+    static final int MAGIC = 'P' | 'X' << 8 | 'R' << 16 | '1' << 24;
+    static final int HEADER_BYTES = 16;
+
+    /** The most pixels a raw raster can hold, so that it maps in one go. */
+    public static final int MAX_PIXELS = (Integer.MAX_VALUE - HEADER_BYTES) / 4;
+
+    private final int width;
+    private final int height;
+    private final IntBuffer pixels;
+
+    private RawRaster(int width, int height, IntBuffer pixels) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Maps a raw raster file for reading. Nothing is copied; the pixels are
+     * read from the page cache as they are accessed.
+     *
+     * @param file the file to map
+     * @return the mapped raster
+     * @throws IOException if the file cannot be read or is not a raw raster
+     */
+    public static RawRaster open(File file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException(file + " is too short to be a raw raster");
+            }
+            ByteBuffer head = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            ch.read(head, 0);
+            if (head.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a raw raster");
+            }
+            int w = head.getInt(4);
+            int h = head.getInt(8);
+            if (w > 0 && h > 0 && (long) w * h > MAX_PIXELS) {
+                throw new IOException(
+                        file + " is " + w + "x" + h + ", larger than the " + MAX_PIXELS
+                                + " pixels a raw raster can map"
+                );
+            }
+            if (w <= 0 || h <= 0 || size != HEADER_BYTES + 4L * w * h) {
+                throw new IOException(
+                        file + " has a bad size for a " + w + "x" + h + " raw raster"
+                );
+            }
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            IntBuffer pixels = map.position(HEADER_BYTES).slice()
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().asReadOnlyBuffer();
+            return new RawRaster(w, h, pixels);
+        }
+    }
+
+    /**
+     * Checks whether a file starts like a raw raster.
+     *
+     * @param file the file to check
+     * @return true if the file exists and begins with the magic number
+     */
+    public static boolean isRawRaster(File file) {
+        if (!file.isFile() || file.length() < HEADER_BYTES) {
+            return false;
+        }
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            ch.read(head, 0);
+            return head.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes packed pixels to a raw raster file, replacing any existing
+     * file.
+     *
+     * @param file   the file to write
+     * @param width  the width of the raster
+     * @param height the height of the raster
+     * @param rgb    the packed pixels, of length {@code width * height}
+     * @throws IllegalArgumentException if the size is not positive or
+     *                                  {@code rgb} is not
+     *                                  {@code width * height} long
+     * @throws IOException if the file cannot be written or the raster has
+     *                     more than {@link #MAX_PIXELS} pixels
+     */
+    public static void write(File file, int width, int height, int[] rgb) throws IOException {
+        if (width <= 0 || height <= 0 || rgb.length != (long) width * height) {
+            throw new IllegalArgumentException(
+                    "expected " + width + "x" + height + " pixels, got " + rgb.length
+            );
+        }
+        if (rgb.length > MAX_PIXELS) {
+            throw new IOException(
+                    width + "x" + height + " is larger than the " + MAX_PIXELS
+                            + " pixels a raw raster can map"
+            );
+        }
+        long size = HEADER_BYTES + 4L * rgb.length;
+        try (FileChannel ch = FileChannel.open(
+                file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            map.putInt(0, MAGIC);
+            map.putInt(4, width);
+            map.putInt(8, height);
+            map.putInt(12, 0);
+            map.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer().put(rgb);
+        }
+    }
+
+    /**
+     * Writes a picture to a raw raster file, replacing any existing file.
+     *
+     * @param pic  the picture to write
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(PixelPicture pic, File file) throws IOException {
+        write(file, pic.getWidth(), pic.getHeight(), pic.packed());
+    }
+
+    /**
+     * Reads a raw raster file into a picture.
+     *
+     * @param file the file to read
+     * @return the picture
+     * @throws IOException if the file cannot be read or is not a raw raster
+     */
+    public static PixelPicture read(File file) throws IOException {
+        return open(file).toPicture();
+    }
+
+    /**
+     * @return the width of the raster
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the raster
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets a read-only view of the mapped pixels; the pixel at (x,y) is at
+     * index {@code y * getWidth() + x}.
+     *
+     * @return the pixels, straight from the mapping
+     */
+    public IntBuffer getPixels() {
+        return pixels.duplicate();
+    }
+
+    /**
+     * Copies the raster into a picture.
+     *
+     * @return a new picture holding the pixels, with the high bytes cleared
+     */
+    public PixelPicture toPicture() {
+        return PixelPicture.fromPacked(width, height, copyPixels());
+    }
+
+    /**
+     * @return a copy of the pixels with the high bytes cleared
+     */
+    int[] copyPixels() {
+        int[] rgb = new int[width * height];
+        pixels.duplicate().get(rgb);
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] &= 0xffffff;
+        }
+        return rgb;
+    }
+}
@@ -22,6 +22,10 @@ public class SimpleManipulations {
      * @return The rotated picture.
      */
     public static PixelPicture rotateCW(PixelPicture pic) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.rotateCW(pic);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
 
@@ -58,6 +62,10 @@ public class SimpleManipulations {
      * @return The rotated picture.
      */
     public static PixelPicture rotateCCW(PixelPicture pic) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.rotateCCW(pic);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
 
@@ -73,6 +81,82 @@ public class SimpleManipulations {
         return new PixelPicture(tgt);
     }
 
+    /**
+     * Rotate a picture 180 degrees.
+     *
+     * @param pic The original picture to rotate.
+     * @return The rotated picture.
+     */
+    public static PixelPicture rotate180(PixelPicture pic) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.rotate180(pic);
+        }
+
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+
+        Pixel[][] src = pic.getBitmap();
+        Pixel[][] tgt = new Pixel[h][w];
+
+        for (int row = 0; row < h; row++) {
+            for (int col = 0; col < w; col++) {
+                tgt[h - row - 1][w - col - 1] = src[row][col];
+            }
+        }
+
+        return new PixelPicture(tgt);
+    }
+
+    /**
+     * Mirror a picture horizontally, swapping its left and right sides.
+     *
+     * @param pic The original picture to mirror.
+     * @return The mirrored picture.
+     */
+    public static PixelPicture mirrorHorizontal(PixelPicture pic) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.mirrorHorizontal(pic);
+        }
+
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+
+        Pixel[][] src = pic.getBitmap();
+        Pixel[][] tgt = new Pixel[h][w];
+
+        for (int row = 0; row < h; row++) {
+            for (int col = 0; col < w; col++) {
+                tgt[row][w - col - 1] = src[row][col];
+            }
+        }
+
+        return new PixelPicture(tgt);
+    }
+
+    /**
+     * Mirror a picture vertically, swapping its top and bottom.
+     *
+     * @param pic The original picture to mirror.
+     * @return The mirrored picture.
+     */
+    public static PixelPicture mirrorVertical(PixelPicture pic) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.mirrorVertical(pic);
+        }
+
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+
+        Pixel[][] src = pic.getBitmap();
+        Pixel[][] tgt = new Pixel[h][w];
+
+        for (int row = 0; row < h; row++) {
+            tgt[h - row - 1] = src[row];
+        }
+
+        return new PixelPicture(tgt);
+    }
+
     /**
      * Create a new image by adding a border to a specified image.
      * 
@@ -82,6 +166,10 @@ public class SimpleManipulations {
      * @return a copy of the input picture with a border
      */
     public static PixelPicture border(PixelPicture pic, int borderWidth, Pixel borderColor) {
+        if (PackedKernels.isEnabled() && borderWidth >= 0) {
+            return PackedKernels.border(pic, borderWidth, borderColor);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
 
@@ -144,6 +232,10 @@ public class SimpleManipulations {
      *         picture
      */
     public static PixelPicture grayScaleLuminosity(PixelPicture pic) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.grayScaleLuminosity(pic);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
 
@@ -171,6 +263,10 @@ public class SimpleManipulations {
      * @return new picture with inverted colors
      */
     public static PixelPicture invertColors(PixelPicture pic) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.invertColors(pic);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
 
@@ -207,6 +303,10 @@ public class SimpleManipulations {
      */
 
     public static PixelPicture grayScaleAverage(PixelPicture pic) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.grayScaleAverage(pic);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
 
@@ -241,6 +341,10 @@ public class SimpleManipulations {
     public static PixelPicture scaleColors(
             PixelPicture pic, double rfactor, double gfactor, double bfactor
     ) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.scaleColors(pic, rfactor, gfactor, bfactor);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
 
@@ -298,6 +402,10 @@ public class SimpleManipulations {
         int fH = f.getHeight();
 
         if ((picW == fW) && (picH == fH)) {
+            if (PackedKernels.isEnabled()) {
+                return PackedKernels.alphaBlend(alpha, pic, f);
+            }
+
             Pixel[][] picBMP = pic.getBitmap();
             Pixel[][] fBMP = f.getBitmap();
 
@@ -356,6 +464,10 @@ public class SimpleManipulations {
      * @return new image with with dark edges
      */
     public static PixelPicture vignette(PixelPicture pic) {
+        if (PackedKernels.isEnabled()) {
+            return PackedKernels.vignette(pic);
+        }
+
         int w = pic.getWidth();
         int h = pic.getHeight();
         double cx = (w - 1) / 2.0;
@@ -0,0 +1,648 @@
+package org.cis1200;
+
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Vector;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * A pipeline of per-pixel steps and blurs that runs over an image file a
+ * horizontal strip at a time, for images too large to hold in memory.
+ * <p>
+ * Each strip of output rows is computed from the source rows it depends
+ * on: the strip itself plus, for every blur, a halo of {@code radius} rows
+ * above and below. A blur of the strip plus halo, treated as a whole
+ * picture, is exact on the strip's own rows, since every row within the
+ * radius of them is present and the halo ends only where the picture
+ * does. PointOps are applied with the picture's own row numbers, so
+ * position-dependent operations such as a vignette see the whole picture.
+ * <p>
+ * Most PNGs are decoded by a {@link PngRowReader} in one pass from top to
+ * bottom, keeping the rows that one strip's halo shares with the next
+ * rather than decoding them again. Other files are read with an
+ * ImageReader source region per strip, so only the strip is held in
+ * memory; but formats that cannot seek to a row, such as JPEG or an
+ * interlaced PNG, decode every row above the region again for each strip,
+ * which grows with the square of the height.
+ * <p>
+ * The output is written through an ImageWriter from a RenderedImage whose
+ * strips are computed as the writer asks for them, so peak memory is a few
+ * strips rather than the whole picture. (Writers that insist on the whole
+ * raster at once, if any, still work but lose that bound.)
+ * <p>
+ * Steps that need the whole picture first, such as adjustContrast or
+ * reducePalette, cannot stream and are not offered. Streaming gives the
+ * same pixels as the in-memory Pipeline with the same steps.
+ */
+public class StreamingPipeline {
+
+    private static final int DEFAULT_STRIP_HEIGHT = 256;
+
+    private static final int[] RGB_MASKS = { 0xff0000, 0x00ff00, 0x0000ff };
+    private static final ColorModel RGB_MODEL = new DirectColorModel(
+            24, RGB_MASKS[0], RGB_MASKS[1], RGB_MASKS[2]
+    );
+
+    private static final Pattern SUFFIX = Pattern.compile(".*\\.(\\w{3,4})");
+
+    /**
+     * One step: a fused run of point operations, or a blur.
+     */
+    private static final class Stage {
+        private final PointOp op;
+        private final int radius;
+
+        private Stage(PointOp op, int radius) {
+            this.op = op;
+            this.radius = radius;
+        }
+    }
+
+    /**
+     * Where source rows come from.
+     */
+    private interface RowSource {
+        int width();
+
+        int height();
+
+        /**
+         * @return the packed pixels of rows {@code [from, to)}
+         */
+        int[] read(int from, int to) throws IOException;
+    }
+
+    private static final StreamingPipeline EMPTY = new StreamingPipeline(
+            Collections.emptyList(), DEFAULT_STRIP_HEIGHT
+    );
+
+    private final List<Stage> stages;
+    private final int stripHeight;
+
+    private StreamingPipeline(List<Stage> stages, int stripHeight) {
+        this.stages = stages;
+        this.stripHeight = stripHeight;
+    }
+
+    /**
+     * @return a pipeline with no steps and the default strip height
+     */
+    public static StreamingPipeline start() {
+        return EMPTY;
+    }
+
+    /**
+     * Adds a per-pixel step, fused with the previous step if that one is
+     * also a per-pixel step.
+     *
+     * @param op the operation to apply to every pixel
+     * @return the extended pipeline
+     */
+    public StreamingPipeline map(PointOp op) {
+        List<Stage> next = new ArrayList<>(stages);
+        int last = next.size() - 1;
+        if (last >= 0 && next.get(last).op != null) {
+            next.set(last, new Stage(next.get(last).op.andThen(op), 0));
+        } else {
+            next.add(new Stage(op, 0));
+        }
+        return new StreamingPipeline(next, stripHeight);
+    }
+
+    /**
+     * Adds a blur, as AdvancedManipulations.blur.
+     *
+     * @param radius the radius of the blurring box; must not be negative
+     * @return the extended pipeline
+     */
+    public StreamingPipeline blur(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("negative blur radius: " + radius);
+        }
+        List<Stage> next = new ArrayList<>(stages);
+        next.add(new Stage(null, radius));
+        return new StreamingPipeline(next, stripHeight);
+    }
+
+    /**
+     * Sets how many output rows are computed at a time. Memory use is about
+     * {@code (rows + 2 * total blur radius) * width} pixels per strip.
+     *
+     * @param rows the strip height, at least 1
+     * @return the pipeline with that strip height
+     */
+    public StreamingPipeline stripHeight(int rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("strip height must be positive, got " + rows);
+        }
+        return new StreamingPipeline(stages, rows);
+    }
+
+    /**
+     * Runs the pipeline over an image file and writes the result to another
+     * file, in the format given by its suffix (png if there is none).
+     *
+     * @param in  the image to read
+     * @param out where to write the result; an existing file is replaced
+     * @throws IOException if the image cannot be read or written
+     */
+    public void run(File in, File out) throws IOException {
+        process(in, out);
+    }
+
+    /**
+     * Does the work of {@link #run(File, File)}.
+     *
+     * @param in  the image to read
+     * @param out where to write the result
+     * @return how many times decoding of {@code in} started: 1 when the
+     *         rows are read in one pass, otherwise once per strip
+     * @throws IOException if the image cannot be read or written
+     */
+    int process(File in, File out) throws IOException {
+        String type = "png";
+        Matcher m = SUFFIX.matcher(out.getName());
+        if (m.matches()) {
+            type = m.group(1);
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(type);
+        if (!writers.hasNext()) {
+            throw new IOException("no writer for format " + type);
+        }
+        ImageWriter writer = writers.next();
+
+        try {
+            PngRowReader png = PngRowReader.open(in);
+            if (png != null) {
+                try (PngSource source = new PngSource(in, png)) {
+                    write(writer, source, out);
+                    return source.passes;
+                }
+            }
+            try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+                if (input == null) {
+                    throw new IOException("cannot open " + in);
+                }
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+                if (!readers.hasNext()) {
+                    throw new IOException("unknown image format: " + in);
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(input, false, true);
+                    ReaderSource source = new ReaderSource(reader);
+                    write(writer, source, out);
+                    return source.passes;
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (UncheckedStripException e) {
+            throw e.getCause();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private void write(ImageWriter writer, RowSource source, File out) throws IOException {
+        Files.deleteIfExists(out.toPath());
+        try (ImageOutputStream output = new FileImageOutputStream(out)) {
+            writer.setOutput(output);
+            writer.write(new StripImage(source));
+        }
+    }
+
+    /**
+     * Runs the pipeline over a picture in memory, a strip at a time. This
+     * gives the same result as {@link #run(File, File)} on a file holding
+     * {@code pic}.
+     *
+     * @param pic the input picture
+     * @return the result
+     */
+    public PixelPicture apply(PixelPicture pic) {
+        int w = pic.getWidth();
+        int h = pic.getHeight();
+        int[] src = pic.packed();
+        RowSource source = new RowSource() {
+            @Override
+            public int width() {
+                return w;
+            }
+
+            @Override
+            public int height() {
+                return h;
+            }
+
+            @Override
+            public int[] read(int from, int to) {
+                int[] rows = new int[(to - from) * w];
+                System.arraycopy(src, from * w, rows, 0, rows.length);
+                return rows;
+            }
+        };
+
+        int[] tgt = new int[w * h];
+        try {
+            for (int y0 = 0; y0 < h; y0 += stripHeight) {
+                int y1 = Math.min(h, y0 + stripHeight);
+                int[] strip = computeStrip(source, bind(w, h), y0, y1);
+                System.arraycopy(strip, 0, tgt, y0 * w, strip.length);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return PixelPicture.fromPacked(w, h, tgt);
+    }
+
+    /**
+     * @return the point operations of each stage, bound to the picture size
+     */
+    private PointOp[] bind(int w, int h) {
+        PointOp[] bound = new PointOp[stages.size()];
+        for (int i = 0; i < bound.length; i++) {
+            PointOp op = stages.get(i).op;
+            bound[i] = op == null ? null : op.bind(w, h);
+        }
+        return bound;
+    }
+
+    /**
+     * Computes output rows {@code [y0, y1)}.
+     */
+    private int[] computeStrip(RowSource source, PointOp[] ops, int y0, int y1)
+            throws IOException {
+        int w = source.width();
+        int h = source.height();
+
+        int halo = 0;
+        for (Stage s : stages) {
+            halo += s.radius;
+        }
+
+        // rows [a, b) of the picture are in buf
+        int a = Math.max(0, y0 - halo);
+        int b = (int) Math.min(h, (long) y1 + halo);
+        int[] buf = source.read(a, b);
+
+        for (int i = 0; i < stages.size(); i++) {
+            Stage s = stages.get(i);
+            if (ops[i] != null) {
+                applyPointOp(ops[i], buf, w, a, b);
+                continue;
+            }
+
+            int n = b - a;
+            int[] blurred = new int[buf.length];
+            BoxBlur.blur(buf, blurred, w, n, s.radius);
+
+            // only rows with every row within the radius present are exact
+            int na = a == 0 ? 0 : a + s.radius;
+            int nb = b == h ? h : b - s.radius;
+            buf = new int[(nb - na) * w];
+            System.arraycopy(blurred, (na - a) * w, buf, 0, buf.length);
+            a = na;
+            b = nb;
+        }
+
+        if (a == y0 && b == y1) {
+            return buf;
+        }
+        int[] strip = new int[(y1 - y0) * w];
+        System.arraycopy(buf, (y0 - a) * w, strip, 0, strip.length);
+        return strip;
+    }
+
+    private static void applyPointOp(PointOp op, int[] buf, int w, int a, int b) {
+        Parallel.forRows(b - a, w, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int row = a + i;
+                int base = i * w;
+                for (int col = 0; col < w; col++) {
+                    buf[base + col] = op.apply(buf[base + col], row, col);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the rows of a PNG in one pass, keeping the rows of the last read
+     * so that the next read, which overlaps it by the halo, only decodes
+     * rows it does not have. Reading rows above those starts over.
+     */
+    private static final class PngSource implements RowSource, Closeable {
+        private final File file;
+        private final int width;
+        private final int height;
+        private PngRowReader reader;
+        private int passes = 1;
+
+        // the rows last read, [first, reader.getRowsRead())
+        private int[] kept = new int[0];
+        private int first = 0;
+
+        private PngSource(File file, PngRowReader reader) {
+            this.file = file;
+            this.reader = reader;
+            this.width = reader.getWidth();
+            this.height = reader.getHeight();
+        }
+
+        @Override
+        public int width() {
+            return width;
+        }
+
+        @Override
+        public int height() {
+            return height;
+        }
+
+        @Override
+        public int[] read(int from, int to) throws IOException {
+            if (from < first) {
+                reader.close();
+                reader = PngRowReader.open(file);
+                passes++;
+                kept = new int[0];
+                first = 0;
+            }
+            int decoded = reader.getRowsRead();
+            if (to > decoded) {
+                int[] rows = new int[(to - from) * width];
+                if (from < decoded) {
+                    System.arraycopy(
+                            kept, (from - first) * width, rows, 0, (decoded - from) * width
+                    );
+                }
+                int[] skipped = new int[width];
+                for (int row = decoded; row < from; row++) {
+                    reader.readRows(skipped, 0, 1);
+                }
+                int start = Math.max(from, decoded);
+                reader.readRows(rows, (start - from) * width, to - start);
+                kept = rows;
+                first = from;
+            }
+            // a copy, since the caller works on the rows in place
+            return Arrays.copyOfRange(kept, (from - first) * width, (to - first) * width);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads rows with source regions.
+     */
+    private static final class ReaderSource implements RowSource {
+        private final ImageReader reader;
+        private final int width;
+        private final int height;
+        private int passes = 0;
+
+        private ReaderSource(ImageReader reader) throws IOException {
+            this.reader = reader;
+            this.width = reader.getWidth(0);
+            this.height = reader.getHeight(0);
+        }
+
+        @Override
+        public int width() {
+            return width;
+        }
+
+        @Override
+        public int height() {
+            return height;
+        }
+
+        @Override
+        public int[] read(int from, int to) throws IOException {
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle(0, from, width, to - from));
+            passes++;
+            // decoded the same way as PixelPicture loads, so that any
+            // transparency is handled the same way
+            BufferedImage rgb = ImageDecoder.read(reader, param);
+            return ((DataBufferInt) rgb.getRaster().getDataBuffer()).getData();
+        }
+    }
+
+    /**
+     * Carries an IOException out of the RenderedImage methods, which cannot
+     * throw one.
+     */
+    private static final class UncheckedStripException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private UncheckedStripException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * The output picture, tiled in strips that are computed when asked for.
+     * The most recent strip is kept, since writers usually ask for one row
+     * at a time from top to bottom.
+     */
+    private final class StripImage implements RenderedImage {
+        private final RowSource source;
+        private final PointOp[] ops;
+        private final int width;
+        private final int height;
+
+        private int cachedStrip = -1;
+        private int[] cachedRows;
+
+        private StripImage(RowSource source) {
+            this.source = source;
+            this.width = source.width();
+            this.height = source.height();
+            this.ops = bind(width, height);
+        }
+
+        private int[] strip(int index) {
+            if (index != cachedStrip) {
+                int y0 = index * stripHeight;
+                int y1 = Math.min(height, y0 + stripHeight);
+                try {
+                    cachedRows = computeStrip(source, ops, y0, y1);
+                } catch (IOException e) {
+                    throw new UncheckedStripException(e);
+                }
+                cachedStrip = index;
+            }
+            return cachedRows;
+        }
+
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            int[] rows = strip(tileY).clone();
+            int y0 = tileY * stripHeight;
+            return Raster.createPackedRaster(
+                    new DataBufferInt(rows, rows.length), width, rows.length / width, width,
+                    RGB_MASKS, new Point(0, y0)
+            );
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            Rectangle r = rect.intersection(new Rectangle(0, 0, width, height));
+            WritableRaster raster = Raster.createPackedRaster(
+                    new DataBufferInt(Math.max(1, r.width * r.height)),
+                    Math.max(1, r.width), Math.max(1, r.height), Math.max(1, r.width),
+                    RGB_MASKS, new Point(r.x, r.y)
+            );
+            copyRows(raster, r);
+            return raster;
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, width, height));
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            if (raster == null) {
+                return (WritableRaster) getData();
+            }
+            copyRows(raster, raster.getBounds().intersection(new Rectangle(0, 0, width, height)));
+            return raster;
+        }
+
+        private void copyRows(WritableRaster raster, Rectangle r) {
+            int[] line = new int[r.width];
+            for (int row = r.y; row < r.y + r.height; row++) {
+                int[] rows = strip(row / stripHeight);
+                int offset = (row % stripHeight) * width + r.x;
+                System.arraycopy(rows, offset, line, 0, r.width);
+                raster.setDataElements(r.x, row, r.width, 1, line);
+            }
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return RGB_MODEL;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return new SinglePixelPackedSampleModel(
+                    DataBufferInt.TYPE_INT, width, stripHeight, RGB_MASKS
+            );
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return (height + stripHeight - 1) / stripHeight;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return stripHeight;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.cis1200;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A picture cut into square tiles at a series of resolutions, for showing
+ * a large picture zoomed out without shrinking all of it.
+ * <p>
+ * Level 0 is the picture itself; each level above it is half as wide and
+ * half as tall as the one below, each pixel the average of a 2x2 square.
+ * Levels stop once one tile holds the whole level. Tiles are made only when
+ * asked for: a level-0 tile is copied out of the picture, and a tile of a
+ * higher level is shrunk from the (up to) four tiles below it. Since tiles
+ * have an even size, the squares never straddle two tiles, so a tile is the
+ * same as the matching part of the whole level shrunk at once.
+ * <p>
+ * Each level keeps its most recently used tiles, up to a fixed number, and
+ * drops the least recently used one to make room for another. Tiles of a
+ * level made only on the way to a tile above are not kept if the whole
+ * level has more tiles than that, since they would only push out the tiles
+ * in use and each other.
+ * <p>
+ * A pyramid may be used from several threads: tiles can be made on one
+ * thread while another draws those already kept. Tiles are made without
+ * holding the pyramid's lock, and a tile made from a picture that
+ * {@link #update(PixelPicture, Rectangle)} has since replaced is returned
+ * but not kept.
+ */
+public class TilePyramid {
+
+    /** The side of a tile, in pixels of its level. */
+    public static final int TILE = 256;
+
+    private PixelPicture base;
+    private final int width;
+    private final int height;
+    private final int levels;
+    private final int tilesPerLevel;
+    private final List<Map<Long, PixelPicture>> tiles = new ArrayList<>();
+
+    /**
+     * Creates a pyramid. No tiles are made yet.
+     *
+     * @param base          the full-resolution picture
+     * @param tilesPerLevel how many tiles each level keeps
+     */
+    public TilePyramid(PixelPicture base, int tilesPerLevel) {
+        if (tilesPerLevel < 1) {
+            throw new IllegalArgumentException(
+                    "tiles per level must be positive, got " + tilesPerLevel
+            );
+        }
+        this.base = base;
+        this.width = base.getWidth();
+        this.height = base.getHeight();
+        this.tilesPerLevel = tilesPerLevel;
+        int longest = Math.max(width, height);
+        int n = 1;
+        while (levelSize(longest, n - 1) > TILE) {
+            n++;
+        }
+        levels = n;
+        for (int i = 0; i < levels; i++) {
+            // access-ordered, so the eldest entry is the least recently used
+            tiles.add(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, PixelPicture> eldest) {
+                    return size() > tilesPerLevel;
+                }
+            });
+        }
+    }
+
+    private static int levelSize(int size, int level) {
+        return (int) ((size + (1L << level) - 1) >> level);
+    }
+
+    /**
+     * @return the full-resolution picture
+     */
+    public synchronized PixelPicture getBase() {
+        return base;
+    }
+
+    /**
+     * @return the number of levels, at least 1
+     */
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * @param level the level
+     * @return the width of the level, {@code ceil(w / 2^level)}
+     */
+    public int getWidth(int level) {
+        return levelSize(width, level);
+    }
+
+    /**
+     * @param level the level
+     * @return the height of the level, {@code ceil(h / 2^level)}
+     */
+    public int getHeight(int level) {
+        return levelSize(height, level);
+    }
+
+    /**
+     * Gets a tile, making it (and any tiles below it that it needs) if it
+     * is not kept. Making a tile high up the pyramid can take a pass over
+     * much of the picture, so this is best called off the event thread.
+     *
+     * @param level the level
+     * @param tx    the column of the tile
+     * @param ty    the row of the tile
+     * @return the pixels of the tile: TILE by TILE, or less at the right
+     *         and bottom edges of the level
+     */
+    public PixelPicture tile(int level, int tx, int ty) {
+        return tile(level, tx, ty, true);
+    }
+
+    /**
+     * Gets a tile if it is kept, without making it.
+     *
+     * @param level the level
+     * @param tx    the column of the tile
+     * @param ty    the row of the tile
+     * @return the tile, or null if it is not kept
+     */
+    public synchronized PixelPicture cachedTile(int level, int tx, int ty) {
+        return tiles.get(level).get(key(tx, ty));
+    }
+
+    private static long key(int tx, int ty) {
+        return (long) tx << 32 | ty;
+    }
+
+    private PixelPicture tile(int level, int tx, int ty, boolean keep) {
+        PixelPicture from;
+        synchronized (this) {
+            PixelPicture t = tiles.get(level).get(key(tx, ty));
+            if (t != null) {
+                return t;
+            }
+            from = base;
+        }
+        PixelPicture t = level == 0 ? copyTile(from, tx, ty) : shrinkTile(level, tx, ty);
+        synchronized (this) {
+            if (keep && base == from) {
+                tiles.get(level).put(key(tx, ty), t);
+            }
+        }
+        return t;
+    }
+
+    private static PixelPicture copyTile(PixelPicture base, int tx, int ty) {
+        int w = base.getWidth();
+        int x0 = tx * TILE;
+        int y0 = ty * TILE;
+        int tw = Math.min(TILE, w - x0);
+        int th = Math.min(TILE, base.getHeight() - y0);
+        int[] src = base.packed();
+        int[] rgb = new int[tw * th];
+        for (int row = 0; row < th; row++) {
+            System.arraycopy(src, (y0 + row) * w + x0, rgb, row * tw, tw);
+        }
+        return PixelPicture.fromPacked(tw, th, rgb);
+    }
+
+    private PixelPicture shrinkTile(int level, int tx, int ty) {
+        // the up to 2x2 tiles of the level below that this one covers
+        int below = level - 1;
+        int bx = 2 * tx;
+        int by = 2 * ty;
+        int across = (getWidth(below) + TILE - 1) / TILE;
+        int down = (getHeight(below) + TILE - 1) / TILE;
+        int cols = Math.min(2, across - bx);
+        int rows = Math.min(2, down - by);
+        boolean keep = (long) across * down <= tilesPerLevel;
+
+        PixelPicture[][] parts = new PixelPicture[rows][cols];
+        int w = 0;
+        int h = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                parts[r][c] = tile(below, bx + c, by + r, keep);
+            }
+            h += parts[r][0].getHeight();
+        }
+        for (int c = 0; c < cols; c++) {
+            w += parts[0][c].getWidth();
+        }
+
+        int[] rgb = new int[w * h];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                PixelPicture p = parts[r][c];
+                int[] src = p.packed();
+                int pw = p.getWidth();
+                for (int row = 0; row < p.getHeight(); row++) {
+                    System.arraycopy(src, row * pw, rgb, (r * TILE + row) * w + c * TILE, pw);
+                }
+            }
+        }
+        return PackedKernels.downscale(PixelPicture.fromPacked(w, h, rgb), 2);
+    }
+
+    /**
+     * Replaces the picture with one of the same size that differs only
+     * inside a rectangle. Tiles made only from pixels outside it are kept.
+     *
+     * @param pic     the new picture
+     * @param changed the rectangle, in pixels of the picture, holding every
+     *                pixel that differs
+     */
+    public synchronized void update(PixelPicture pic, Rectangle changed) {
+        if (pic.getWidth() != width || pic.getHeight() != height) {
+            throw new IllegalArgumentException("the new picture has a different size");
+        }
+        base = pic;
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (int level = 0; level < levels; level++) {
+            long span = (long) TILE << level;
+            long x0 = changed.x / span;
+            long x1 = (changed.x + changed.width - 1) / span;
+            long y0 = changed.y / span;
+            long y1 = (changed.y + changed.height - 1) / span;
+            tiles.get(level).keySet().removeIf(key -> {
+                long tx = key >>> 32;
+                long ty = key & 0xffffffffL;
+                return tx >= x0 && tx <= x1 && ty >= y0 && ty <= y1;
+            });
+        }
+    }
+
+    /**
+     * @param level the level
+     * @return how many tiles of the level are kept
+     */
+    synchronized int keptTiles(int level) {
+        return tiles.get(level).size();
+    }
+}
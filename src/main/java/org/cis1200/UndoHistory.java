@@ -0,0 +1,371 @@
+package org.cis1200;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The earlier versions of a picture being edited, kept within a memory
+ * budget.
+ * <p>
+ * The most recently pushed picture is kept whole, so that one undo costs
+ * nothing. When another picture is pushed on top of it, it is replaced by
+ * its difference from that newer picture, unless it is a keyframe. A
+ * difference holds the pixels of the two XORed together, inside the
+ * smallest rectangle holding every changed pixel, with runs of unchanged
+ * pixels stored as a count. A
+ * localized edit such as a flood fill or a border then costs little more
+ * than the pixels it changed. An older picture is rebuilt from the next
+ * newer one, which is why undoing only ever applies one difference.
+ * <p>
+ * Every {@code keyframeInterval}-th picture pushed is kept whole, and so is
+ * any picture whose difference would be no smaller than the picture itself
+ * (after most whole-picture filters) or that has a different size from the
+ * next one (after a rotation). {@link #get(int)} rebuilds a picture from the
+ * nearest newer whole one, so keyframes bound how many differences it
+ * applies.
+ * <p>
+ * Working out a difference takes a pass over both pictures. To keep that
+ * off a thread that must stay responsive, {@link #compare(PixelPicture,
+ * PixelPicture)} can be called beforehand on another thread, and its
+ * result handed to {@link #push(PixelPicture, Change)}.
+ * <p>
+ * Pictures are immutable, so whole pictures are stored by reference, not
+ * copied. Once the stored pictures and differences exceed the budget, the
+ * oldest are dropped. The most recent one is always kept, even if it alone
+ * exceeds the budget.
+ */
+public class UndoHistory {
+
+    private static final long DEFAULT_BUDGET = 256L << 20;
+    private static final int DEFAULT_KEYFRAME_INTERVAL = 8;
+
+    // rough bookkeeping cost of an entry, beyond its pixels
+    private static final long ENTRY_BYTES = 64;
+
+    /**
+     * A stored picture: either whole or as a difference from the next one.
+     */
+    private static final class Entry {
+        private final long serial;
+        private PixelPicture whole;
+        private Delta delta;
+
+        private Entry(long serial, PixelPicture whole) {
+            this.serial = serial;
+            this.whole = whole;
+        }
+
+        private long bytes() {
+            if (whole != null) {
+                return ENTRY_BYTES + 4L * whole.getWidth() * whole.getHeight();
+            }
+            return ENTRY_BYTES + 4L * delta.runs.length;
+        }
+    }
+
+    /**
+     * The XOR of a picture with the next one, within their bounding
+     * rectangle of changed pixels. The rectangle's pixels, in row-major
+     * order, are encoded as repeated groups {@code skip, n, x1 ... xn}: skip
+     * unchanged pixels, then XOR the next n pixels with x1 to xn.
+     */
+    private static final class Delta {
+        private final int top;
+        private final int left;
+        private final int rectWidth;
+        private final int[] runs;
+
+        private Delta(int top, int left, int rectWidth, int[] runs) {
+            this.top = top;
+            this.left = left;
+            this.rectWidth = rectWidth;
+            this.runs = runs;
+        }
+    }
+
+    /**
+     * How a picture differs from the one before it, worked out by
+     * {@link #compare(PixelPicture, PixelPicture)}.
+     */
+    public static final class Change {
+        private final PixelPicture older;
+        private final PixelPicture newer;
+        private final Rectangle bounds;
+        private final Delta delta;
+
+        private Change(PixelPicture older, PixelPicture newer, Rectangle bounds, Delta delta) {
+            this.older = older;
+            this.newer = newer;
+            this.bounds = bounds;
+            this.delta = delta;
+        }
+
+        /**
+         * @return the smallest rectangle holding every pixel that differs,
+         *         which is empty if the pictures are equal, or null if they
+         *         differ in size
+         */
+        public Rectangle getBounds() {
+            return bounds == null ? null : new Rectangle(bounds);
+        }
+    }
+
+    private final long budget;
+    private final int keyframeInterval;
+
+    // oldest first; the last entry is always whole
+    private final List<Entry> entries = new ArrayList<>();
+    private long used = 0;
+    private long pushed = 0;
+
+    /**
+     * Creates a history with a 256MB budget and a keyframe every 8 pictures.
+     */
+    public UndoHistory() {
+        this(DEFAULT_BUDGET, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Creates a history.
+     *
+     * @param budget           how many bytes of pictures and differences to
+     *                         keep
+     * @param keyframeInterval keep every this many pictures whole; 1 keeps
+     *                         every picture whole
+     */
+    public UndoHistory(long budget, int keyframeInterval) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("negative budget: " + budget);
+        }
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException(
+                    "keyframe interval must be positive, got " + keyframeInterval
+            );
+        }
+        this.budget = budget;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Compares a picture with the one it replaces, for
+     * {@link #push(PixelPicture, Change)}. This does not touch any history,
+     * so it can run on any thread.
+     *
+     * @param older the newest version in the history
+     * @param newer the picture about to be pushed
+     * @return the comparison
+     */
+    public static Change compare(PixelPicture older, PixelPicture newer) {
+        Rectangle bounds = PixelPicture.changedBounds(older, newer);
+        return new Change(older, newer, bounds, diff(older, newer, bounds));
+    }
+
+    /**
+     * Records a picture as the newest version.
+     *
+     * @param pic the picture to remember
+     */
+    public void push(PixelPicture pic) {
+        push(pic, null);
+    }
+
+    /**
+     * Records a picture as the newest version, using a comparison with the
+     * current newest version made beforehand.
+     *
+     * @param pic    the picture to remember
+     * @param change {@code compare(newest, pic)}; if it is null or compares
+     *               other pictures, the pictures are compared here
+     */
+    public void push(PixelPicture pic, Change change) {
+        if (!entries.isEmpty()) {
+            Entry prev = entries.get(entries.size() - 1);
+            if (prev.serial % keyframeInterval != 0) {
+                Delta d = change != null && change.older == prev.whole && change.newer == pic
+                        ? change.delta
+                        : diff(prev.whole, pic, PixelPicture.changedBounds(prev.whole, pic));
+                if (d != null) {
+                    used -= prev.bytes();
+                    prev.whole = null;
+                    prev.delta = d;
+                    used += prev.bytes();
+                }
+            }
+        }
+        Entry e = new Entry(pushed++, pic);
+        entries.add(e);
+        used += e.bytes();
+
+        while (used > budget && entries.size() > 1) {
+            used -= entries.remove(0).bytes();
+        }
+    }
+
+    /**
+     * Removes the newest version.
+     *
+     * @return the newest version, or null if there is none
+     */
+    public PixelPicture undo() {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        Entry last = entries.remove(entries.size() - 1);
+        used -= last.bytes();
+        if (!entries.isEmpty()) {
+            Entry prev = entries.get(entries.size() - 1);
+            if (prev.whole == null) {
+                used -= prev.bytes();
+                prev.whole = apply(prev.delta, last.whole);
+                prev.delta = null;
+                used += prev.bytes();
+            }
+        }
+        return last.whole;
+    }
+
+    /**
+     * Rebuilds a version without removing anything.
+     *
+     * @param back how many versions back: 0 is the newest
+     * @return that version
+     * @throws IndexOutOfBoundsException if there are not that many versions
+     */
+    public PixelPicture get(int back) {
+        int target = entries.size() - 1 - back;
+        if (back < 0 || target < 0) {
+            throw new IndexOutOfBoundsException(
+                    "no version " + back + " back, only " + entries.size()
+            );
+        }
+        int i = target;
+        while (entries.get(i).whole == null) {
+            i++;
+        }
+        PixelPicture pic = entries.get(i).whole;
+        while (i > target) {
+            i--;
+            pic = apply(entries.get(i).delta, pic);
+        }
+        return pic;
+    }
+
+    /**
+     * @return the number of versions kept
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return whether there is nothing to undo
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Forgets every version.
+     */
+    public void clear() {
+        entries.clear();
+        used = 0;
+    }
+
+    /**
+     * @return roughly how many bytes the kept versions take up
+     */
+    public long bytesUsed() {
+        return used;
+    }
+
+    /**
+     * Encodes {@code older} as a difference from {@code newer}, given the
+     * bounds of the pixels that differ.
+     *
+     * @return the difference, or null if the pictures differ in size or the
+     *         difference would be no smaller than {@code older}
+     */
+    private static Delta diff(PixelPicture older, PixelPicture newer, Rectangle changed) {
+        if (changed == null) {
+            return null;
+        }
+        int w = older.getWidth();
+        int[] a = older.packed();
+        int[] b = newer.packed();
+        if (changed.isEmpty()) {
+            return new Delta(0, 0, w, new int[0]);
+        }
+
+        int top = changed.y;
+        int bottom = changed.y + changed.height - 1;
+        int left = changed.x;
+        int rw = changed.width;
+        int limit = a.length;
+        int[] runs = new int[Math.min(limit, 1024)];
+        int n = 0;
+        int skip = 0;
+        int countAt = -1;
+        for (int row = top; row <= bottom; row++) {
+            int base = row * w + left;
+            for (int col = 0; col < rw; col++) {
+                int x = a[base + col] ^ b[base + col];
+                if (x == 0) {
+                    skip++;
+                    countAt = -1;
+                    continue;
+                }
+                // stop once the difference is no smaller than the picture
+                int need = countAt < 0 ? 3 : 1;
+                if (n + need >= limit) {
+                    return null;
+                }
+                if (n + need > runs.length) {
+                    runs = Arrays.copyOf(runs, Math.min(limit, 2 * runs.length + need));
+                }
+                if (countAt < 0) {
+                    runs[n++] = skip;
+                    countAt = n++;
+                    runs[countAt] = 0;
+                    skip = 0;
+                }
+                runs[n++] = x;
+                runs[countAt]++;
+            }
+        }
+        return new Delta(top, left, rw, Arrays.copyOf(runs, n));
+    }
+
+    /**
+     * Rebuilds the older picture of a difference from the newer one.
+     */
+    private static PixelPicture apply(Delta d, PixelPicture newer) {
+        int w = newer.getWidth();
+        int[] dst = newer.packed().clone();
+        int rw = d.rectWidth;
+        int row = 0;
+        int col = 0;
+        int base = d.top * w + d.left;
+        int t = 0;
+        while (t < d.runs.length) {
+            col += d.runs[t++];
+            if (col >= rw) {
+                row += col / rw;
+                col %= rw;
+                base = (d.top + row) * w + d.left;
+            }
+            int n = d.runs[t++];
+            for (int i = 0; i < n; i++) {
+                dst[base + col] ^= d.runs[t++];
+                if (++col == rw) {
+                    col = 0;
+                    row++;
+                    base += w;
+                }
+            }
+        }
+        return PixelPicture.fromPacked(w, newer.getHeight(), dst);
+    }
+}
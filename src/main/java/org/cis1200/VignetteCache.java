@@ -0,0 +1,126 @@
+package org.cis1200;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the vignette darkening factors for recently used picture sizes.
+ * <p>
+ * The factor at a pixel depends only on its distance from the center, so it
+ * is the same in all four quadrants: mirroring a column about the center
+ * negates dx exactly (both are multiples of 1/2), and likewise for rows.
+ * Only the top-left quadrant, including the middle row and column of an
+ * odd-sized picture, is computed and stored, {@code ((w + 1) / 2) * ((h + 1)
+ * / 2)} factors in row-major order.
+ * <p>
+ * Factors are kept as doubles. Storing them in fixed point would change
+ * some results: Math.round(c * factor) depends on how the double product
+ * rounds, and no fixed-point factor reproduces that for every component c.
+ * <p>
+ * Sizes are evicted least recently used first once the stored factors
+ * exceed a memory budget. A size whose quarter alone exceeds the budget is
+ * computed on each request and not stored.
+ */
+public class VignetteCache {
+
+    private static final long DEFAULT_BUDGET = 64L << 20;
+
+    private static long budget = DEFAULT_BUDGET;
+    private static long used = 0;
+
+    // access-ordered, so iteration starts at the least recently used size
+    private static final LinkedHashMap<Long, double[]> CACHE =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    private VignetteCache() {
+    }
+
+    /**
+     * Sets how many bytes of factors may be kept, evicting sizes if needed.
+     *
+     * @param bytes the memory budget; 0 disables caching
+     */
+    public static synchronized void setBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("negative budget: " + bytes);
+        }
+        budget = bytes;
+        evict();
+    }
+
+    /**
+     * @return the number of bytes of factors currently kept
+     */
+    public static synchronized long bytesUsed() {
+        return used;
+    }
+
+    /**
+     * Empties the cache.
+     */
+    public static synchronized void clear() {
+        CACHE.clear();
+        used = 0;
+    }
+
+    /**
+     * Gets the top-left quadrant of the vignette factors for a picture size.
+     * The factor at (row, col) of the whole picture is at index
+     * {@code qrow * ((w + 1) / 2) + qcol} of the result, where qrow is
+     * {@code row} in the top half and {@code h - 1 - row} in the bottom
+     * half, and qcol likewise.
+     * <p>
+     * The result is shared and must not be modified.
+     *
+     * @param w the width of the picture
+     * @param h the height of the picture; w and h must not both be 1
+     * @return the factors of the top-left quadrant
+     */
+    static double[] quadrant(int w, int h) {
+        Long key = (long) w << 32 | h;
+        synchronized (VignetteCache.class) {
+            double[] q = CACHE.get(key);
+            if (q != null) {
+                return q;
+            }
+        }
+
+        // computed outside the lock, so another thread may compute the same
+        // size at the same time; either copy is correct
+        double[] q = compute(w, h);
+        long bytes = 8L * q.length;
+        synchronized (VignetteCache.class) {
+            if (bytes <= budget && !CACHE.containsKey(key)) {
+                CACHE.put(key, q);
+                used += bytes;
+                evict();
+            }
+        }
+        return q;
+    }
+
+    private static double[] compute(int w, int h) {
+        int qw = (w + 1) / 2;
+        int qh = (h + 1) / 2;
+        double cx = (w - 1) / 2.0;
+        double cy = (h - 1) / 2.0;
+        double r = Math.sqrt(cx * cx + cy * cy);
+
+        double[] q = new double[qw * qh];
+        for (int row = 0; row < qh; row++) {
+            for (int col = 0; col < qw; col++) {
+                q[row * qw + col] = PackedKernels.vignetteFactor(row, col, cx, cy, r);
+            }
+        }
+        return q;
+    }
+
+    private static void evict() {
+        Iterator<Map.Entry<Long, double[]>> it = CACHE.entrySet().iterator();
+        while (used > budget && it.hasNext()) {
+            used -= 8L * it.next().getValue().length;
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.cis1200;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the command-line batch runner.
+ */
+public class BatchRunnerTest {
+
+    @TempDir
+    File dir;
+
+    private File copyItaly(File to, String name) throws IOException {
+        File f = new File(to, name);
+        Files.copy(new File(ImageTest.LOCATION + "Italy.png").toPath(), f.toPath());
+        return f;
+    }
+
+    @Test
+    public void parseMatchesManipulations() {
+        Pipeline p = BatchRunner.parse(
+                List.of("grayScaleAverage", "scaleColors=1,0.9,0.8", "blur=2", "rotateCW")
+        );
+        PixelPicture expected = SimpleManipulations.rotateCW(
+                AdvancedManipulations.blur(
+                        SimpleManipulations.scaleColors(
+                                SimpleManipulations.grayScaleAverage(ImageTest.ITALY),
+                                1, 0.9, 0.8
+                        ),
+                        2
+                )
+        );
+        assertEquals(0, PixelPicture.diff(expected, p.apply(ImageTest.ITALY)));
+    }
+
+    @Test
+    public void parseRejectsBadOperations() {
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.parse(List.of("sharpen")));
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.parse(List.of("blur")));
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.parse(List.of("blur=x")));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> BatchRunner.parse(List.of("vignette=1"))
+        );
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> BatchRunner.parse(List.of("border=3,1,2"))
+        );
+    }
+
+    @Test
+    public void runsDirectory() throws Exception {
+        File in = new File(dir, "in");
+        File out = new File(dir, "out");
+        assertTrue(in.mkdir());
+        for (int i = 0; i < 5; i++) {
+            copyItaly(in, "italy" + i + ".png");
+        }
+        Files.writeString(new File(in, "notes.txt").toPath(), "not an image");
+
+        BatchRunner runner = new BatchRunner(
+                BatchRunner.parse(List.of("invertColors", "border=4")), null, 2, 1, 2
+        );
+        BatchRunner.Report report = runner.run(in, out);
+        assertEquals(5, report.getProcessed());
+        assertTrue(report.getFailures().isEmpty());
+        assertEquals(List.of(new File(in, "notes.txt")), report.getSkipped());
+
+        PixelPicture expected = SimpleManipulations.border(
+                SimpleManipulations.invertColors(ImageTest.ITALY), 4, Pixel.BLACK
+        );
+        for (int i = 0; i < 5; i++) {
+            PixelPicture got = new PixelPicture(new File(out, "italy" + i + ".png").getPath());
+            assertEquals(0, PixelPicture.diff(expected, got));
+        }
+        assertFalse(new File(out, "notes.txt").exists());
+    }
+
+    @Test
+    public void convertsFormatAndReportsFailures() throws Exception {
+        File in = new File(dir, "in");
+        File out = new File(dir, "out");
+        assertTrue(in.mkdir());
+        copyItaly(in, "good.png");
+        Files.writeString(new File(in, "bad.png").toPath(), "not really a png");
+
+        BatchRunner runner = new BatchRunner(
+                BatchRunner.parse(List.of("mirrorVertical")), RawRaster.SUFFIX, 1, 1, 1
+        );
+        BatchRunner.Report report = runner.run(in, out);
+        assertEquals(1, report.getProcessed());
+        assertEquals(1, report.getFailures().size());
+        assertTrue(report.getFailures().containsKey(new File(in, "bad.png")));
+
+        File good = new File(out, "good.pxr");
+        assertTrue(RawRaster.isRawRaster(good));
+        assertEquals(
+                0, PixelPicture.diff(
+                        SimpleManipulations.mirrorVertical(ImageTest.ITALY),
+                        RawRaster.read(good)
+                )
+        );
+    }
+
+    @Test
+    public void rejectsCollidingOutputs() throws Exception {
+        File in = new File(dir, "in");
+        File out = new File(dir, "out");
+        assertTrue(in.mkdir());
+        copyItaly(in, "a.png");
+        new PixelPicture(new File(in, "a.png").getPath()).save(new File(in, "a.jpg").getPath());
+
+        BatchRunner runner = new BatchRunner(Pipeline.start(), "png", 1, 1, 1);
+        IOException e = assertThrows(IOException.class, () -> runner.run(in, out));
+        assertTrue(e.getMessage().contains("a.jpg and a.png"), e.getMessage());
+        assertFalse(out.exists());
+
+        // keeping each file's own format, the names stay apart
+        BatchRunner.Report report = new BatchRunner(Pipeline.start()).run(in, out);
+        assertEquals(2, report.getProcessed());
+    }
+
+    @Test
+    public void rejectsUnknownFormat() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new BatchRunner(Pipeline.start(), "nosuchformat", 1, 1, 1)
+        );
+    }
+}
@@ -0,0 +1,87 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the lookup-table color operations against the Pixel formulas.
+ */
+public class ColorLutTest {
+
+    private static int referenceLuminosity(int r, int g, int b) {
+        int v = (int) Math.round(0.299 * r + 0.587 * g + 0.114 * b);
+        return Pixel.pack(v, v, v);
+    }
+
+    private static int referenceAverage(int r, int g, int b) {
+        int v = (int) Math.round((r + g + b) / 3.0);
+        return Pixel.pack(v, v, v);
+    }
+
+    @Test
+    public void grayScalesMatchForEveryColor() {
+        ColorLut lum = ColorLut.grayScaleLuminosity();
+        ColorLut avg = ColorLut.grayScaleAverage();
+        for (int r = 0; r < 256; r++) {
+            for (int g = 0; g < 256; g++) {
+                for (int b = 0; b < 256; b++) {
+                    int rgb = r << 16 | g << 8 | b;
+                    if (lum.apply(rgb) != referenceLuminosity(r, g, b)) {
+                        fail("luminosity of " + Pixel.fromRGB(rgb));
+                    }
+                    if (avg.apply(rgb) != referenceAverage(r, g, b)) {
+                        fail("average of " + Pixel.fromRGB(rgb));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void scaleAndInvert() {
+        int rgb = Pixel.pack(200, 100, 3);
+        assertEquals(Pixel.pack(255, 50, 0), ColorLut.scaleColors(1.5, 0.5, 0.1).apply(rgb));
+        assertEquals(Pixel.pack(55, 155, 252), ColorLut.invertColors().apply(rgb));
+        assertEquals(rgb, ColorLut.identity().apply(rgb));
+    }
+
+    @Test
+    public void compositionMatchesSteps() {
+        ColorLut[] luts = {
+            ColorLut.scaleColors(1.2, 0.9, 0.4),
+            ColorLut.invertColors(),
+            ColorLut.grayScaleLuminosity(),
+            ColorLut.contrast(2.5, 90),
+            ColorLut.grayScaleAverage(),
+            ColorLut.scaleColors(34.0 / 255, 43.0 / 255, 109.0 / 255)
+        };
+        for (ColorLut a : luts) {
+            for (ColorLut b : luts) {
+                ColorLut ab = a.then(b);
+                for (int rgb = 0; rgb < 1 << 24; rgb += 4099) {
+                    assertEquals(b.apply(a.apply(rgb)), ab.apply(rgb));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pointOpsFuseIntoOneLut() {
+        PointOp op = PointOps.scaleColors(1.1, 1.0, 0.9).andThen(PointOps.grayScaleAverage());
+        assertTrue(op instanceof ColorLut);
+    }
+
+    @Test
+    public void perChannelChecksTables() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> ColorLut.perChannel(new int[255], new int[256], new int[256])
+        );
+        int[] bad = new int[256];
+        bad[7] = 256;
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> ColorLut.perChannel(new int[256], bad, new int[256])
+        );
+    }
+}
@@ -0,0 +1,113 @@
+package org.cis1200;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the color frequency map in both of its storage modes.
+ */
+public class ColorMapTest {
+
+    private static void fill(ColorMap m) {
+        Pixel a = new Pixel(1, 2, 3);
+        Pixel b = new Pixel(3, 0, 0);
+        Pixel c = new Pixel(0, 0, 9);
+        m.increment(a);
+        m.increment(a);
+        m.put(b, 2);
+        for (int i = 0; i < 5; i++) {
+            m.increment(c.toRGB());
+        }
+        m.increment(Pixel.WHITE);
+    }
+
+    private static void checkSorted(ColorMap m) {
+        assertEquals(4, m.size());
+        assertArrayEquals(
+                new Pixel[] {
+                    new Pixel(0, 0, 9), new Pixel(3, 0, 0), new Pixel(1, 2, 3), Pixel.WHITE
+                },
+                m.getSortedPixels(),
+                "descending frequency, ties in descending color order"
+        );
+    }
+
+    @Test
+    public void sparseCounts() {
+        ColorMap m = new ColorMap();
+        fill(m);
+        assertEquals(2, m.getValue(new Pixel(1, 2, 3)));
+        assertTrue(m.contains(Pixel.WHITE));
+        assertFalse(m.contains(Pixel.BLACK));
+        checkSorted(m);
+    }
+
+    @Test
+    public void denseCounts() {
+        ColorMap m = new ColorMap(true);
+        fill(m);
+        assertEquals(5, m.getValue(new Pixel(0, 0, 9)));
+        assertFalse(m.contains(Pixel.BLACK));
+        m.put(Pixel.BLACK, 0);
+        assertTrue(m.contains(Pixel.BLACK));
+        assertEquals(0, m.getValue(Pixel.BLACK));
+    }
+
+    @Test
+    public void denseMatchesSparse() {
+        ColorMap dense = new ColorMap(true);
+        fill(dense);
+        checkSorted(dense);
+    }
+
+    @Test
+    public void missingColorThrows() {
+        assertThrows(NullPointerException.class, () -> new ColorMap().getValue(Pixel.RED));
+        assertThrows(NullPointerException.class, () -> new ColorMap(true).getValue(Pixel.RED));
+    }
+
+    @Test
+    public void manyColorsGrowTable() {
+        ColorMap m = new ColorMap();
+        for (int rgb = 0; rgb < 5000; rgb++) {
+            for (int k = 0; k <= rgb % 3; k++) {
+                m.increment(rgb * 17);
+            }
+        }
+        assertEquals(5000, m.size());
+        assertEquals(3, m.getValue(5 * 17));
+        int[] sorted = m.getSortedColors();
+        assertEquals(4997 * 17, sorted[0], "largest color among those seen 3 times");
+    }
+
+    @Test
+    public void topKMatchesPrefix() {
+        // enough colors that the full sort takes the radix path
+        ColorMap sparse = new ColorMap();
+        ColorMap dense = new ColorMap(true);
+        for (int i = 0; i < 20000; i++) {
+            int rgb = (i * 7919) & 0xffffff;
+            for (int k = 0; k <= i % 7; k++) {
+                sparse.increment(rgb);
+                dense.increment(rgb);
+            }
+        }
+        int[] all = sparse.getSortedColors();
+        assertEquals(20000, all.length);
+        for (int i = 1; i < all.length; i++) {
+            int prev = sparse.getValue(all[i - 1]);
+            int cur = sparse.getValue(all[i]);
+            assertTrue(prev > cur || (prev == cur && all[i - 1] > all[i]), "order at " + i);
+        }
+        assertArrayEquals(all, dense.getSortedColors());
+
+        for (int k : new int[] { 0, 1, 5, 512, 19999, 20000, 30000 }) {
+            int[] top = sparse.getSortedColors(k);
+            assertArrayEquals(Arrays.copyOf(all, Math.min(k, 20000)), top, "top " + k);
+            assertArrayEquals(top, dense.getSortedColors(k), "dense top " + k);
+        }
+        assertEquals(Pixel.fromRGB(all[0]), sparse.getSortedPixels(1)[0]);
+    }
+}
@@ -0,0 +1,77 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the pipelined effects give the same pictures as chaining the
+ * manipulations one call at a time.
+ */
+public class EffectsTest {
+
+    static final PixelPicture ITALY = ImageTest.ITALY;
+
+    private static void assertSame(PixelPicture expected, PixelPicture actual, String msg) {
+        assertEquals(expected.getWidth(), actual.getWidth(), msg);
+        assertEquals(expected.getHeight(), actual.getHeight(), msg);
+        assertEquals(0, PixelPicture.diff(expected, actual), msg);
+    }
+
+    @Test
+    public void eighteenNinety() {
+        PixelPicture gray = SimpleManipulations.grayScaleLuminosity(ITALY);
+        PixelPicture sepia = SimpleManipulations.scaleColors(gray, 1.0, 0.95, 0.75);
+        PixelPicture vign = SimpleManipulations.vignette(sepia);
+        PixelPicture blend = SimpleManipulations.alphaBlend(0.5, sepia, vign);
+        PixelPicture expected = SimpleManipulations.scaleColors(blend, 1.1, 1.1, 1.1);
+        assertSame(expected, Effects.eighteenNinety(ITALY), "1890s");
+    }
+
+    @Test
+    public void pinHole() {
+        PixelPicture p1 = SimpleManipulations.scaleColors(ITALY, 1.0, 0.95, 0.75);
+        PixelPicture p2 = SimpleManipulations.scaleColors(p1, 1.1, 1.1, 1.0);
+        PixelPicture p3 = SimpleManipulations.vignette(p2);
+        PixelPicture p4 = AdvancedManipulations.blur(p3, 1);
+        PixelPicture expected = SimpleManipulations.border(p4, 10, Pixel.WHITE);
+        assertSame(expected, Effects.pinHole(ITALY), "pin hole");
+    }
+
+    @Test
+    public void zombie() {
+        PixelPicture gray = SimpleManipulations.grayScaleLuminosity(ITALY);
+        PixelPicture p1 = SimpleManipulations.alphaBlend(0.2, ITALY, gray);
+        PixelPicture purples = SimpleManipulations
+                .scaleColors(gray, 34.0 / 255, 43.0 / 255, 109.0 / 255);
+        p1 = SimpleManipulations.alphaBlend(0.7, p1, purples);
+        p1 = AdvancedManipulations.adjustContrast(p1, 3.0);
+        PixelPicture expected = SimpleManipulations.border(p1, 20, Pixel.BLACK);
+        assertSame(expected, Effects.zombie(ITALY), "zombie");
+    }
+
+    @Test
+    public void plastic() {
+        PixelPicture p1 = AdvancedManipulations.adjustContrast(ITALY, 3.0);
+        PixelPicture expected = SimpleManipulations.vignette(p1);
+        assertSame(expected, Effects.plastic(ITALY), "plastic");
+    }
+
+    @Test
+    public void peaches() {
+        PixelPicture p1 = SimpleManipulations.scaleColors(ITALY, 1.2, 1.2, 1.2);
+        p1 = AdvancedManipulations.reducePalette(p1, 512);
+        PixelPicture expected = SimpleManipulations
+                .scaleColors(p1, 1.0, 229.0 / 255, 180.0 / 255);
+        assertSame(expected, Effects.peaches(ITALY), "peaches");
+    }
+
+    @Test
+    public void singlePixelVignette() {
+        PixelPicture dot = new PixelPicture(new Pixel[][] { { new Pixel(9, 99, 199) } });
+        assertSame(
+                dot,
+                Pipeline.start().map(PointOps.vignette()).apply(dot),
+                "a single pixel is left alone"
+        );
+    }
+}
@@ -0,0 +1,122 @@
+package org.cis1200;
+
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests loading pictures through ImageIO.
+ */
+public class ImageDecoderTest {
+
+    // what loading through an ImageIcon produced
+    private static int[] iconPixels(String filename) {
+        Image image = new ImageIcon(filename).getImage();
+        BufferedImage rgb = new BufferedImage(
+                image.getWidth(null), image.getHeight(null), BufferedImage.TYPE_INT_RGB
+        );
+        Graphics g = rgb.getGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        int[] pixels = rgb.getRGB(0, 0, rgb.getWidth(), rgb.getHeight(), null, 0, rgb.getWidth());
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] &= 0xffffff;
+        }
+        return pixels;
+    }
+
+    @Test
+    public void sameAsImageIcon() {
+        File[] files = new File(ImageTest.LOCATION).listFiles((d, n) -> n.endsWith(".png"));
+        assertNotNull(files);
+        assertTrue(files.length > 0);
+        for (File f : files) {
+            PixelPicture pic = new PixelPicture(f.getPath());
+            assertArrayEquals(iconPixels(f.getPath()), pic.getPackedPixels(), f.getName());
+        }
+    }
+
+    @Test
+    public void grayAndTransparent(@TempDir File dir) throws Exception {
+        BufferedImage gray = new BufferedImage(7, 5, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage alpha = new BufferedImage(7, 5, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                gray.getRaster().setSample(x, y, 0, 30 * x + 7 * y);
+                alpha.setRGB(x, y, (40 * x) << 24 | 0x00c08040 + y);
+            }
+        }
+        File g = new File(dir, "gray.png");
+        File a = new File(dir, "alpha.png");
+        ImageIO.write(gray, "png", g);
+        ImageIO.write(alpha, "png", a);
+
+        assertArrayEquals(iconPixels(g.getPath()), new PixelPicture(g.getPath()).getPackedPixels());
+        assertArrayEquals(iconPixels(a.getPath()), new PixelPicture(a.getPath()).getPackedPixels());
+    }
+
+    @Test
+    public void indexedHasNoAlphaBits(@TempDir File dir) throws Exception {
+        byte[] r = { 0, (byte) 200, 10, (byte) 255 };
+        byte[] g = { 0, 100, 20, (byte) 255 };
+        byte[] b = { 0, 50, 30, (byte) 255 };
+        BufferedImage indexed = new BufferedImage(
+                4, 2, BufferedImage.TYPE_BYTE_INDEXED, new IndexColorModel(8, 4, r, g, b)
+        );
+        for (int x = 0; x < 4; x++) {
+            indexed.getRaster().setSample(x, 1, 0, x);
+        }
+        File f = new File(dir, "indexed.png");
+        ImageIO.write(indexed, "png", f);
+
+        int[] pixels = new PixelPicture(f.getPath()).getPackedPixels();
+        assertArrayEquals(iconPixels(f.getPath()), pixels);
+        assertEquals(0xc86432, pixels[5]);
+    }
+
+    @Test
+    public void subsampled() {
+        String name = ImageTest.LOCATION + "Italy.png";
+        int[] full = new PixelPicture(name).getPackedPixels();
+        int w = 640;
+
+        PixelPicture thumb = new PixelPicture(name, 3);
+        assertEquals(214, thumb.getWidth());
+        assertEquals(160, thumb.getHeight());
+        int[] small = thumb.getPackedPixels();
+        for (int row = 0; row < 160; row++) {
+            for (int col = 0; col < 214; col++) {
+                assertEquals(full[3 * row * w + 3 * col], small[row * 214 + col]);
+            }
+        }
+
+        assertEquals(0, PixelPicture.diff(ImageTest.ITALY, new PixelPicture(name, 1)));
+        assertThrows(IllegalArgumentException.class, () -> new PixelPicture(name, 0));
+    }
+
+    @Test
+    public void subsampledRawRaster(@TempDir File dir) {
+        String name = new File(dir, "italy.pxr").getPath();
+        ImageTest.ITALY.save(name);
+        PixelPicture png = new PixelPicture(ImageTest.LOCATION + "Italy.png", 4);
+        PixelPicture raw = new PixelPicture(name, 4);
+        assertEquals(160, raw.getWidth());
+        assertEquals(120, raw.getHeight());
+        assertEquals(0, PixelPicture.diff(png, raw));
+    }
+
+    @Test
+    public void unreadable() {
+        assertThrows(RuntimeException.class, () -> new PixelPicture("pom.xml"));
+        assertThrows(RuntimeException.class, () -> new PixelPicture("no/such/file.png"));
+    }
+}
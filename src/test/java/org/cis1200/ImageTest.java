@@ -37,6 +37,30 @@ public class ImageTest {
         );
     }
 
+    @Test
+    public void testMirrorHorizontal() {
+        assertEquals(
+                0,
+                PixelPicture.diff(
+                        new PixelPicture(LOCATION + "ItalyMirrorHorizontal.png"),
+                        SimpleManipulations.mirrorHorizontal(ITALY)
+                ),
+                "Mirror horizontal"
+        );
+    }
+
+    @Test
+    public void testMirrorVertical() {
+        assertEquals(
+                0,
+                PixelPicture.diff(
+                        new PixelPicture(LOCATION + "ItalyMirrorVertical.png"),
+                        SimpleManipulations.mirrorVertical(ITALY)
+                ),
+                "Mirror vertical"
+        );
+    }
+
     @Test
     public void testBorder() {
         assertEquals(
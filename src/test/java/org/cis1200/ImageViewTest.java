@@ -0,0 +1,75 @@
+package org.cis1200;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests displaying pictures without copying them.
+ */
+public class ImageViewTest {
+
+    private static int[] paint(ImageView view) {
+        Dimension size = view.getPreferredSize();
+        BufferedImage out = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        Graphics g = out.getGraphics();
+        view.paint(g);
+        g.dispose();
+        return ((DataBufferInt) out.getRaster().getDataBuffer()).getData();
+    }
+
+    @Test
+    public void paintsPicture() {
+        ImageView view = new ImageView(ImageTest.ITALY);
+        assertEquals(new Dimension(640, 480), view.getPreferredSize());
+        view.setSize(view.getPreferredSize());
+        assertArrayEquals(ImageTest.ITALY.getPackedPixels(), paint(view));
+
+        PixelPicture rotated = SimpleManipulations.rotateCW(ImageTest.ITALY);
+        view.setPicture(rotated);
+        assertSame(rotated, view.getPicture());
+        assertEquals(new Dimension(480, 640), view.getPreferredSize());
+        view.setSize(view.getPreferredSize());
+        assertArrayEquals(rotated.getPackedPixels(), paint(view));
+    }
+
+    @Test
+    public void paintsPrecomparedPicture() {
+        ImageView view = new ImageView(ImageTest.ITALY);
+        view.setSize(view.getPreferredSize());
+        paint(view);
+
+        PixelPicture flooded = AdvancedManipulations.flood(
+                ImageTest.ITALY, new Pixel(255, 0, 0), 10, 10
+        );
+        Rectangle changed = UndoHistory.compare(ImageTest.ITALY, flooded).getBounds();
+        view.setPicture(flooded, changed);
+        assertSame(flooded, view.getPicture());
+        assertArrayEquals(flooded.getPackedPixels(), paint(view));
+    }
+
+    @Test
+    public void changedBounds() {
+        PixelPicture a = ImageTest.ITALY;
+        assertTrue(PixelPicture.changedBounds(a, new PixelPicture(a)).isEmpty());
+        assertNull(PixelPicture.changedBounds(a, SimpleManipulations.rotateCW(a)));
+        assertEquals(
+                new Rectangle(0, 0, 640, 480),
+                PixelPicture.changedBounds(a, SimpleManipulations.invertColors(a))
+        );
+
+        int[] px = a.getPackedPixels();
+        px[100 * 640 + 30] ^= 1;
+        px[200 * 640 + 500] ^= 1;
+        px[150 * 640 + 200] ^= 1;
+        assertEquals(
+                new Rectangle(30, 100, 471, 101),
+                PixelPicture.changedBounds(a, PixelPicture.fromPacked(640, 480, px))
+        );
+    }
+}
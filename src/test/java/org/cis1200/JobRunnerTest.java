@@ -0,0 +1,118 @@
+package org.cis1200;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests running manipulations in the background.
+ */
+public class JobRunnerTest {
+
+    // stands in for the event thread: callbacks run when the test takes them
+    private final LinkedBlockingQueue<Runnable> events = new LinkedBlockingQueue<>();
+    private final JobRunner jobs = new JobRunner(events::add);
+
+    private void runNextEvent() throws InterruptedException {
+        Runnable r = events.poll(10, TimeUnit.SECONDS);
+        assertNotNull(r, "no callback");
+        r.run();
+    }
+
+    @Test
+    public void deliversResult() throws InterruptedException {
+        List<PixelPicture> done = new ArrayList<>();
+        jobs.submit(
+                () -> SimpleManipulations.invertColors(ImageTest.ITALY), done::add,
+                e -> fail(e)
+        );
+        assertTrue(jobs.isBusy());
+        runNextEvent();
+        assertEquals(1, done.size());
+        assertEquals(
+                0, PixelPicture.diff(SimpleManipulations.invertColors(ImageTest.ITALY), done.get(0))
+        );
+        assertFalse(jobs.isBusy());
+    }
+
+    @Test
+    public void deliversFailure() throws InterruptedException {
+        List<Throwable> failed = new ArrayList<>();
+        jobs.submit(() -> {
+            throw new IllegalStateException("boom");
+        }, p -> fail("no result expected"), failed::add);
+        runNextEvent();
+        assertEquals("boom", failed.get(0).getMessage());
+    }
+
+    @Test
+    public void deliversError() throws InterruptedException {
+        List<Throwable> failed = new ArrayList<>();
+        jobs.submit(() -> {
+            throw new OutOfMemoryError("too big");
+        }, p -> fail("no result expected"), failed::add);
+        runNextEvent();
+        assertInstanceOf(OutOfMemoryError.class, failed.get(0));
+        assertFalse(jobs.isBusy());
+    }
+
+    @Test
+    public void newerJobReplacesOlder() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> done = new ArrayList<>();
+
+        jobs.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            // computed, but replaced before it finished
+            return ImageTest.ITALY;
+        }, p -> done.add("first"), e -> done.add("first failed"));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        jobs.submit(
+                () -> SimpleManipulations.rotateCW(ImageTest.ITALY),
+                p -> done.add("second"),
+                e -> done.add("second failed")
+        );
+        release.countDown();
+
+        // the first job's callback may already be queued; it must do nothing
+        while (done.isEmpty()) {
+            runNextEvent();
+        }
+        assertEquals(List.of("second"), done);
+    }
+
+    @Test
+    public void cancelledJobStops() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> done = new ArrayList<>();
+        jobs.submit(() -> {
+            started.countDown();
+            PixelPicture p = ImageTest.ITALY;
+            // would take far too long if cancelling did not stop it
+            for (int i = 0; i < 100000; i++) {
+                p = AdvancedManipulations.blur(p, 1);
+            }
+            return p;
+        }, p -> done.add("done"), e -> done.add("failed"));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        jobs.cancel();
+        assertFalse(jobs.isBusy());
+
+        // a later job runs once the cancelled one has stopped
+        jobs.submit(() -> ImageTest.ITALY, p -> done.add("next"), e -> done.add("failed"));
+        runNextEvent();
+        assertEquals(List.of("next"), done);
+    }
+}
@@ -0,0 +1,75 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the proxies used for live previews.
+ */
+public class LivePreviewTest {
+
+    @Test
+    public void downscaleAverages() {
+        // 5x3, shrunk by 2: full 2x2 squares, and partial ones at the edges
+        int[] rgb = new int[15];
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = Pixel.pack(10 * i, 255 - 10 * i, i % 2 == 0 ? 0 : 101);
+        }
+        PixelPicture small = PackedKernels.downscale(PixelPicture.fromPacked(5, 3, rgb), 2);
+        assertEquals(3, small.getWidth());
+        assertEquals(2, small.getHeight());
+
+        int[] px = small.getPackedPixels();
+        // pixels 0, 1, 5, 6: red 0 + 10 + 50 + 60 = 120 / 4
+        assertEquals(Pixel.pack(30, 225, 51), px[0]);
+        // pixels 4, 9: red (40 + 90) / 2, blue (0 + 101) / 2 rounded
+        assertEquals(Pixel.pack(65, 190, 51), px[2]);
+        // pixel 14 alone
+        assertEquals(rgb[14], px[5]);
+    }
+
+    @Test
+    public void proxyIsSmallAndRemembered() {
+        PixelPicture big = PixelPicture.fromPacked(1300, 700, new int[1300 * 700]);
+        PixelPicture proxy = LivePreview.proxy(big);
+        assertTrue(Math.max(proxy.getWidth(), proxy.getHeight()) <= LivePreview.PROXY_SIZE);
+        assertEquals(434, proxy.getWidth());
+        assertEquals(234, proxy.getHeight());
+        assertSame(proxy, LivePreview.proxy(big));
+
+        PixelPicture small = ManipulateTest.smallSquare();
+        assertSame(small, LivePreview.proxy(small));
+    }
+
+    @Test
+    public void fieldGoesPastTheSlider() {
+        LivePreview.Control c = new LivePreview.Control(
+                new LivePreview.Setting("Multiplier", 0, 255, 1, 4, 0.01)
+        );
+        assertEquals(1, c.getValue());
+        assertEquals(100, c.slider.getValue());
+
+        c.slider.setValue(150);
+        assertEquals(1.5, c.getValue());
+        // the whole range stays open in the field
+        c.field.setValue(16.0);
+        assertEquals(16, c.getValue());
+        assertEquals(400, c.slider.getValue());
+    }
+
+    @Test
+    public void wholeNumbersAreRounded() {
+        LivePreview.Control c = new LivePreview.Control(
+                new LivePreview.Setting("Colors", 1, Integer.MAX_VALUE, 64, 512, 1)
+        );
+        c.field.setValue(1000.0);
+        assertEquals(1000, c.getValue());
+        assertEquals(512, c.slider.getValue());
+        c.field.setValue(2.6);
+        assertEquals(3, c.getValue());
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new LivePreview.Setting("Bad", 1, 10, 20, 5, 1)
+        );
+    }
+}
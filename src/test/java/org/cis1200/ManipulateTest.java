@@ -1,5 +1,8 @@
 package org.cis1200;
 
+import java.nio.ReadOnlyBufferException;
+import java.util.function.UnaryOperator;
+
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -124,6 +127,38 @@ public class ManipulateTest {
         );
     }
 
+    @Test
+    public void borderLazy() {
+        PixelPicture rect = testNewPicRect();
+        PixelPicture eager = SimpleManipulations.border(
+                SimpleManipulations.border(
+                        SimpleManipulations.border(rect, 2, Pixel.RED), 3, Pixel.RED
+                ),
+                1, Pixel.BLUE
+        );
+        PixelPicture.setLazyViews(true);
+        try {
+            PixelPicture lazy = SimpleManipulations.border(
+                    SimpleManipulations.border(
+                            SimpleManipulations.border(rect, 2, Pixel.RED), 3, Pixel.RED
+                    ),
+                    1, Pixel.BLUE
+            );
+            assertTrue(lazy.isPending());
+            assertEquals(256 + 12, lazy.getWidth());
+            assertEquals(512 + 12, lazy.getHeight());
+            assertEquals(0, PixelPicture.diff(eager, lazy));
+            assertFalse(lazy.isPending());
+
+            PixelPicture small = SimpleManipulations.border(smallSquare(), 1, Pixel.WHITE);
+            assertEquals(0, PixelPicture.diff(small, smallSquareBorder()), "lazy small border");
+            PixelPicture none = SimpleManipulations.border(smallSquare(), 0, Pixel.WHITE);
+            assertEquals(0, PixelPicture.diff(smallSquare(), none), "empty border");
+        } finally {
+            PixelPicture.setLazyViews(false);
+        }
+    }
+
     @Test
     public void luminositySmall() {
         assertTrue(
@@ -236,6 +271,62 @@ public class ManipulateTest {
         );
     }
 
+    @Test
+    public void vignetteOddSizes() {
+        for (int[] size : new int[][] { { 1, 7 }, { 7, 1 }, { 5, 3 }, { 6, 9 }, { 255, 17 } }) {
+            Pixel[][] bmp = new Pixel[size[1]][size[0]];
+            for (int row = 0; row < size[1]; row++) {
+                for (int col = 0; col < size[0]; col++) {
+                    bmp[row][col] = new Pixel(200, 150 + col % 100, 3 * row);
+                }
+            }
+            PixelPicture pic = new PixelPicture(bmp);
+            PixelPicture packed = SimpleManipulations.vignette(pic);
+            PackedKernels.setEnabled(false);
+            try {
+                PixelPicture reference = SimpleManipulations.vignette(pic);
+                assertEquals(
+                        0, PixelPicture.diff(reference, packed), size[0] + "x" + size[1]
+                );
+            } finally {
+                PackedKernels.setEnabled(true);
+            }
+        }
+    }
+
+    @Test
+    public void vignetteCacheBudget() {
+        VignetteCache.clear();
+        try {
+            VignetteCache.setBudget(8 * 100 * 100);
+            VignetteCache.quadrant(200, 200);
+            assertEquals(8 * 100 * 100, VignetteCache.bytesUsed());
+            VignetteCache.quadrant(20, 20);
+            assertEquals(8 * 10 * 10, VignetteCache.bytesUsed(), "the larger size was evicted");
+            VignetteCache.quadrant(400, 400);
+            assertEquals(8 * 10 * 10, VignetteCache.bytesUsed(), "too large to keep");
+        } finally {
+            VignetteCache.setBudget(64L << 20);
+            VignetteCache.clear();
+        }
+    }
+
+    @Test
+    public void contrastKnownMean() {
+        PixelPicture pic = testNewPicRect();
+        int mean = AdvancedManipulations.meanIntensity(pic);
+        assertEquals(mean, AdvancedManipulations.sampledMeanIntensity(pic, 1000));
+        assertEquals(
+                0,
+                PixelPicture.diff(
+                        AdvancedManipulations.adjustContrast(pic, 2.5),
+                        AdvancedManipulations.adjustContrast(pic, 2.5, mean)
+                )
+        );
+        assertSameAsReference(p -> AdvancedManipulations.adjustContrast(p, 1.7), "contrast");
+        assertSameAsReference(p -> AdvancedManipulations.adjustContrast(p, 0.4, 200), "mean 200");
+    }
+
     @Test
     public void paletteTrivial() {
         PixelPicture s = threeStripes(10, 10, 10, 255, 255, 255, 0, 0, 0);
@@ -262,6 +353,37 @@ public class ManipulateTest {
         );
     }
 
+    @Test
+    public void paletteManyColors() {
+        PixelPicture pic = testNewPicRect();
+        PixelPicture packed = AdvancedManipulations.reducePalette(pic, 300);
+        PackedKernels.setEnabled(false);
+        try {
+            PixelPicture reference = AdvancedManipulations.reducePalette(pic, 300);
+            assertEquals(0, PixelPicture.diff(reference, packed));
+        } finally {
+            PackedKernels.setEnabled(true);
+        }
+    }
+
+    @Test
+    public void paletteMoreColorsThanPicture() {
+        PixelPicture s = smallSquare();
+        assertEquals(0, PixelPicture.diff(s, AdvancedManipulations.reducePalette(s, 10)));
+    }
+
+    @Test
+    public void paletteIndexTies() {
+        int gray = Pixel.pack(100, 100, 100);
+        int red = Pixel.pack(110, 100, 100);
+        int blue = Pixel.pack(100, 100, 90);
+        PaletteIndex index = new PaletteIndex(new int[] { red, blue, gray });
+        assertEquals(2, index.nearest(gray));
+        assertEquals(0, index.nearest(Pixel.pack(105, 100, 95)), "tie goes to the first");
+        assertEquals(1, index.nearest(Pixel.pack(100, 100, 0)));
+        assertEquals(1, index.nearest(Pixel.pack(100, 100, 0)), "memoized answer");
+    }
+
     @Test
     public void blurSmall() {
         assertTrue(
@@ -278,4 +400,142 @@ public class ManipulateTest {
                 "Small Blur"
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void floodStripe() {
+        PixelPicture s = threeStripes(0, 0, 0, 255, 255, 255, 10, 10, 10);
+        assertEquals(
+                0,
+                PixelPicture.diff(
+                        threeStripes(0, 0, 0, 255, 0, 0, 10, 10, 10),
+                        AdvancedManipulations.flood(s, Pixel.RED, 40, 150)
+                ),
+                "flood the middle stripe"
+        );
+    }
+
+    @Test
+    public void floodTolerance() {
+        PixelPicture s = threeStripes(255, 255, 255, 0, 0, 0, 10, 10, 10);
+        assertEquals(
+                0,
+                PixelPicture.diff(
+                        threeStripes(255, 255, 255, 0, 0, 0, 255, 0, 0),
+                        AdvancedManipulations.flood(s, Pixel.RED, 0, 0, 29)
+                ),
+                "distance 30 is just outside the tolerance"
+        );
+        assertEquals(
+                0,
+                PixelPicture.diff(
+                        threeStripes(255, 255, 255, 255, 0, 0, 255, 0, 0),
+                        AdvancedManipulations.flood(s, Pixel.RED, 0, 0, 30)
+                ),
+                "distance 30 is within the tolerance"
+        );
+    }
+
+    @Test
+    public void floodSpiral() {
+        // a one-pixel-wide black path winding through a white square
+        Pixel[][] bmp = new Pixel[9][9];
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                boolean ring = Math.min(Math.min(row, col), Math.min(8 - row, 8 - col)) % 2 == 0;
+                bmp[row][col] = ring ? Pixel.BLACK : Pixel.WHITE;
+            }
+        }
+        bmp[2][1] = Pixel.BLACK;
+        bmp[4][3] = Pixel.BLACK;
+        bmp[6][5] = Pixel.BLACK;
+        PixelPicture flooded = AdvancedManipulations.flood(new PixelPicture(bmp), Pixel.RED, 0, 0);
+
+        Pixel[][] out = flooded.getBitmap();
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                Pixel expected = bmp[row][col] == Pixel.BLACK ? Pixel.RED : Pixel.WHITE;
+                assertEquals(expected, out[row][col], "(" + row + ", " + col + ")");
+            }
+        }
+    }
+
+    @Test
+    public void floodOutside() {
+        PixelPicture s = smallSquare();
+        assertSame(s, AdvancedManipulations.flood(s, Pixel.RED, 5, 0));
+    }
+
+    @Test
+    public void blurRadiusLargerThanImage() {
+        PixelPicture avg = AdvancedManipulations.blur(smallSquare(), 300);
+        for (Pixel[] row : avg.getBitmap()) {
+            for (Pixel p : row) {
+                assertEquals(new Pixel(64, 64, 64), p, "every pixel averages the whole image");
+            }
+        }
+    }
+
+    @Test
+    public void packedRoundTrip() {
+        PixelPicture p = smallSquare();
+        int[] rgb = p.getPackedPixels();
+        assertArrayEquals(
+                new int[] { Pixel.BLACK.toRGB(), Pixel.BLUE.toRGB(),
+                    Pixel.RED.toRGB(), Pixel.GREEN.toRGB() },
+                rgb
+        );
+
+        rgb[0] = Pixel.WHITE.toRGB();
+        assertEquals(Pixel.BLACK, p.getBitmap()[0][0], "copy does not alias the picture");
+        assertThrows(ReadOnlyBufferException.class, () -> p.getPackedView().put(0, 0));
+
+        PixelPicture q = PixelPicture.fromPacked(2, 2, rgb);
+        assertEquals(Pixel.WHITE, q.getBitmap()[0][0]);
+        assertEquals(Pixel.GREEN, q.getBitmap()[1][1]);
+        assertThrows(IllegalArgumentException.class, () -> PixelPicture.fromPacked(3, 2, rgb));
+    }
+
+    /* ---------------- packed kernels -------------------- */
+
+    private static void assertSameAsReference(
+            UnaryOperator<PixelPicture> op, String msg
+    ) {
+        for (PixelPicture pic : new PixelPicture[] { smallSquare(), testNewPicRect() }) {
+            PixelPicture packed = op.apply(pic);
+            PackedKernels.setEnabled(false);
+            try {
+                PixelPicture reference = op.apply(pic);
+                assertEquals(reference.getWidth(), packed.getWidth(), msg);
+                assertEquals(reference.getHeight(), packed.getHeight(), msg);
+                assertEquals(0, PixelPicture.diff(reference, packed), msg);
+            } finally {
+                PackedKernels.setEnabled(true);
+            }
+        }
+    }
+
+    @Test
+    public void packedKernelsMatchReference() {
+        assertSameAsReference(SimpleManipulations::rotateCW, "rotateCW");
+        assertSameAsReference(SimpleManipulations::rotateCCW, "rotateCCW");
+        assertSameAsReference(p -> SimpleManipulations.border(p, 3, Pixel.RED), "border");
+        assertSameAsReference(SimpleManipulations::grayScaleLuminosity, "luminosity");
+        assertSameAsReference(SimpleManipulations::grayScaleAverage, "average");
+        assertSameAsReference(SimpleManipulations::invertColors, "invert");
+        assertSameAsReference(
+                p -> SimpleManipulations.scaleColors(p, 1.3, 0.45, -1), "scaleColors"
+        );
+        assertSameAsReference(
+                p -> SimpleManipulations.alphaBlend(0.3, p, SimpleManipulations.invertColors(p)),
+                "alphaBlend"
+        );
+        assertSameAsReference(SimpleManipulations::vignette, "vignette");
+        // the Pixel-based version needs at least numColors colors in the picture
+        for (int k : new int[] { 1, 2, 4 }) {
+            assertSameAsReference(p -> AdvancedManipulations.reducePalette(p, k), "palette " + k);
+        }
+        for (int r : new int[] { 0, 1, 2, 5 }) {
+            assertSameAsReference(p -> AdvancedManipulations.blur(p, r), "blur " + r);
+        }
+    }
+}
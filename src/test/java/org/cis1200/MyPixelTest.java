@@ -100,4 +100,17 @@ public class MyPixelTest {
         Pixel p = new Pixel(arr);
         assertEquals("(10, 20, 30)", p.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPackRoundTrip() {
+        Pixel p = new Pixel(10, 20, 30);
+        assertEquals(0x0a141e, p.toRGB());
+        assertEquals(p, Pixel.fromRGB(p.toRGB()));
+        assertEquals(20, Pixel.green(0xff0a141e));
+    }
+
+    @Test
+    public void testPackClips() {
+        assertEquals(new Pixel(300, -5, 128).toRGB(), Pixel.pack(300, -5, 128));
+    }
+}
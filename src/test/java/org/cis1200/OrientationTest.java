@@ -0,0 +1,118 @@
+package org.cis1200;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the tiled rotations and mirrors and their lazy application.
+ */
+public class OrientationTest {
+
+    // larger than a tile in both directions, and not a multiple of one
+    static final PixelPicture RECT = ManipulateTest.testNewPicRect();
+    static final PixelPicture ODD = PixelPicture.fromPacked(
+            37, 70, new int[37 * 70]
+    );
+
+    static {
+        int[] rgb = ODD.packed();
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = i * 40503 & 0xffffff;
+        }
+    }
+
+    @AfterEach
+    public void restore() {
+        PixelPicture.setLazyViews(false);
+    }
+
+    private static PixelPicture reference(PixelPicture pic, Orientation o) {
+        PackedKernels.setEnabled(false);
+        try {
+            switch (o) {
+                case IDENTITY:
+                    return pic;
+                case MIRROR_HORIZONTAL:
+                    return SimpleManipulations.mirrorHorizontal(pic);
+                case MIRROR_VERTICAL:
+                    return SimpleManipulations.mirrorVertical(pic);
+                case ROTATE_180:
+                    return SimpleManipulations.rotate180(pic);
+                case TRANSPOSE:
+                    return SimpleManipulations.rotateCW(SimpleManipulations.mirrorVertical(pic));
+                case ROTATE_CW:
+                    return SimpleManipulations.rotateCW(pic);
+                case ROTATE_CCW:
+                    return SimpleManipulations.rotateCCW(pic);
+                default:
+                    return SimpleManipulations.rotateCCW(SimpleManipulations.mirrorVertical(pic));
+            }
+        } finally {
+            PackedKernels.setEnabled(true);
+        }
+    }
+
+    private static void assertSamePicture(PixelPicture expected, PixelPicture actual, String msg) {
+        assertEquals(expected.getWidth(), actual.getWidth(), msg);
+        assertEquals(expected.getHeight(), actual.getHeight(), msg);
+        assertEquals(0, PixelPicture.diff(expected, actual), msg);
+    }
+
+    @Test
+    public void everyOrientationMatchesReference() {
+        for (PixelPicture pic : new PixelPicture[] { RECT, ODD }) {
+            for (Orientation o : Orientation.values()) {
+                assertSamePicture(reference(pic, o), pic.reorient(o), o.name());
+            }
+        }
+    }
+
+    @Test
+    public void compositionMatchesSteps() {
+        for (Orientation a : Orientation.values()) {
+            for (Orientation b : Orientation.values()) {
+                assertSamePicture(
+                        ODD.reorient(a).reorient(b),
+                        ODD.reorient(a.then(b)),
+                        a + " then " + b
+                );
+            }
+        }
+    }
+
+    @Test
+    public void inversesCancel() {
+        assertEquals(Orientation.IDENTITY, Orientation.ROTATE_CW.then(Orientation.ROTATE_CCW));
+        assertEquals(
+                Orientation.ROTATE_180,
+                Orientation.MIRROR_HORIZONTAL.then(Orientation.MIRROR_VERTICAL)
+        );
+    }
+
+    @Test
+    public void lazyDefersUntilRead() {
+        PixelPicture.setLazyViews(true);
+        PixelPicture turned = SimpleManipulations.rotateCW(
+                SimpleManipulations.mirrorHorizontal(SimpleManipulations.rotateCW(RECT))
+        );
+        assertTrue(turned.isPending());
+        assertEquals(256, turned.getWidth(), "size is known without moving pixels");
+        assertEquals(512, turned.getHeight());
+        assertTrue(turned.isPending());
+
+        PixelPicture.setLazyViews(false);
+        PixelPicture eager = SimpleManipulations.rotateCW(
+                SimpleManipulations.mirrorHorizontal(SimpleManipulations.rotateCW(RECT))
+        );
+        assertSamePicture(eager, turned, "lazy chain");
+        assertFalse(turned.isPending());
+    }
+
+    @Test
+    public void lazyRoundTripSharesPixels() {
+        PixelPicture.setLazyViews(true);
+        PixelPicture back = SimpleManipulations.rotateCCW(SimpleManipulations.rotateCW(RECT));
+        assertFalse(back.isPending());
+        assertSame(RECT.packed(), back.packed());
+    }
+}
@@ -0,0 +1,193 @@
+package org.cis1200;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that running the manipulations in bands on several threads gives
+ * exactly the same pictures as running them on one.
+ */
+public class ParallelTest {
+
+    // big enough to be split into bands
+    static final int W = 320;
+    static final int H = 257;
+
+    static PixelPicture noisy;
+
+    @BeforeAll
+    public static void makePicture() {
+        Random rand = new Random(1200);
+        int[] rgb = new int[W * H];
+        for (int i = 0; i < rgb.length; i++) {
+            // few distinct colors, in smooth regions, so palettes are interesting
+            int row = i / W;
+            int col = i % W;
+            rgb[i] = Pixel.pack(row % 64 * 4, col % 32 * 8, rand.nextInt(4) * 60);
+        }
+        noisy = PixelPicture.fromPacked(W, H, rgb);
+        Parallel.setParallelism(3);
+    }
+
+    @AfterAll
+    public static void restore() {
+        Parallel.setParallelism(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static void assertSameInParallel(UnaryOperator<PixelPicture> op, String msg) {
+        PixelPicture seq = Parallel.call(false, () -> op.apply(noisy));
+        PixelPicture par = Parallel.call(true, () -> op.apply(noisy));
+        assertEquals(0, PixelPicture.diff(seq, par), msg);
+    }
+
+    @Test
+    public void simpleManipulations() {
+        assertSameInParallel(SimpleManipulations::rotateCW, "rotateCW");
+        assertSameInParallel(SimpleManipulations::rotateCCW, "rotateCCW");
+        assertSameInParallel(p -> SimpleManipulations.border(p, 7, Pixel.RED), "border");
+        assertSameInParallel(SimpleManipulations::grayScaleLuminosity, "luminosity");
+        assertSameInParallel(SimpleManipulations::grayScaleAverage, "average");
+        assertSameInParallel(SimpleManipulations::invertColors, "invert");
+        assertSameInParallel(p -> SimpleManipulations.scaleColors(p, 1.3, 0.5, 2), "scale");
+        assertSameInParallel(SimpleManipulations::vignette, "vignette");
+        assertSameInParallel(
+                p -> SimpleManipulations.alphaBlend(0.3, p, SimpleManipulations.invertColors(p)),
+                "alphaBlend"
+        );
+    }
+
+    @Test
+    public void blur() {
+        for (int r : new int[] { 0, 1, 7, 100, 1000 }) {
+            int radius = r;
+            assertSameInParallel(p -> AdvancedManipulations.blur(p, radius), "blur " + r);
+        }
+    }
+
+    @Test
+    public void contrastAndPalette() {
+        assertSameInParallel(p -> AdvancedManipulations.adjustContrast(p, 2.5), "contrast");
+        assertSameInParallel(p -> AdvancedManipulations.reducePalette(p, 40), "palette");
+    }
+
+    @Test
+    public void effects() {
+        assertSameInParallel(Effects::eighteenNinety, "1890s");
+        assertSameInParallel(Effects::zombie, "zombie");
+        assertSameInParallel(Effects::peaches, "peaches");
+    }
+
+    @Test
+    public void overrideIsRestored() {
+        boolean before = Parallel.isEnabled();
+        Parallel.call(!before, () -> {
+            assertEquals(!before, Parallel.isEnabled());
+            return null;
+        });
+        assertEquals(before, Parallel.isEnabled());
+    }
+
+    @Test
+    public void monitoredGivesSameResult() {
+        for (boolean parallel : new boolean[] { false, true }) {
+            Parallel.Monitor m = new Parallel.Monitor();
+            PixelPicture plain = Parallel.call(parallel, () -> Effects.peaches(noisy));
+            PixelPicture monitored = Parallel.call(
+                    parallel, () -> Parallel.monitor(m, () -> Effects.peaches(noisy))
+            );
+            assertEquals(0, PixelPicture.diff(plain, monitored));
+            assertTrue(m.getPasses() > 1);
+            assertEquals(1.0, m.getProgress());
+
+            PixelPicture blurred = Parallel.call(
+                    parallel, () -> Parallel.monitor(m, () -> AdvancedManipulations.blur(noisy, 20))
+            );
+            assertEquals(0, PixelPicture.diff(AdvancedManipulations.blur(noisy, 20), blurred));
+        }
+    }
+
+    @Test
+    public void cancelStopsBetweenBands() {
+        Parallel.Monitor m = new Parallel.Monitor();
+        int[] bands = new int[1];
+        assertThrows(CancellationException.class, () -> Parallel.monitor(m, () -> {
+            Parallel.forRows(H, W, (from, to) -> {
+                bands[0]++;
+                m.cancel();
+            });
+            return null;
+        }));
+        assertEquals(1, bands[0]);
+        assertTrue(m.getProgress() < 1.0);
+    }
+
+    @Test
+    public void resizeWhileRunning() throws Exception {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            // bands that do almost nothing, so that submits come thick and fast
+            Thread worker = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        AtomicInteger rows = new AtomicInteger();
+                        Parallel.call(true, () -> {
+                            Parallel.forRows(H, W, (from, to) -> rows.addAndGet(to - from));
+                            return null;
+                        });
+                        assertEquals(H, rows.get());
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        try {
+            long end = System.nanoTime() + 500_000_000L;
+            for (int i = 0; System.nanoTime() < end && failure.get() == null; i++) {
+                Parallel.setParallelism(2 + i % 3);
+            }
+        } finally {
+            stop.set(true);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            Parallel.setParallelism(3);
+        }
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void bandsLeaveOtherPools() {
+        // called from a pool of the caller's, the bands still run on
+        // Parallel's
+        ForkJoinPool other = new ForkJoinPool(2);
+        Set<ForkJoinPool> used = ConcurrentHashMap.newKeySet();
+        try {
+            other.submit(() -> Parallel.call(true, () -> {
+                Parallel.forRows(H, W, (from, to) -> used.add(ForkJoinTask.getPool()));
+                return null;
+            })).join();
+        } finally {
+            other.shutdown();
+        }
+        assertFalse(used.isEmpty());
+        assertFalse(used.contains(other));
+    }
+}
@@ -0,0 +1,143 @@
+package org.cis1200;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.FileImageOutputStream;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that reading a PNG a row at a time gives the same pixels as
+ * decoding it whole.
+ */
+public class PngRowReaderTest {
+
+    static final int W = 37;
+    static final int H = 23;
+
+    @TempDir
+    File dir;
+
+    private static int[] decodeWhole(File f) throws IOException {
+        try (FileImageInputStream in = new FileImageInputStream(f)) {
+            BufferedImage img = ImageDecoder.read(in, 1);
+            return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        }
+    }
+
+    // reads in bands of varying height, so bands end mid-chunk
+    private static int[] readByRows(File f) throws IOException {
+        try (PngRowReader r = PngRowReader.open(f)) {
+            assertNotNull(r, f.getName());
+            int w = r.getWidth();
+            int h = r.getHeight();
+            int[] rgb = new int[w * h];
+            for (int y = 0, n = 1; y < h; y += n, n++) {
+                n = Math.min(n, h - y);
+                r.readRows(rgb, y * w, n);
+            }
+            assertEquals(h, r.getRowsRead());
+            return rgb;
+        }
+    }
+
+    private File write(String name, BufferedImage img, boolean interlaced) throws IOException {
+        File f = new File(dir, name + ".png");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setProgressiveMode(
+                interlaced ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED
+        );
+        try (FileImageOutputStream out = new FileImageOutputStream(f)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return f;
+    }
+
+    private static BufferedImage noise(int type, long seed) {
+        Random rand = new Random(seed);
+        BufferedImage img = new BufferedImage(W, H, type);
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                img.setRGB(x, y, rand.nextInt());
+            }
+        }
+        return img;
+    }
+
+    private static BufferedImage indexed(int bits, int colors, boolean translucent) {
+        byte[] r = new byte[colors];
+        byte[] g = new byte[colors];
+        byte[] b = new byte[colors];
+        byte[] a = new byte[colors];
+        Random rand = new Random(bits * 100 + colors);
+        rand.nextBytes(r);
+        rand.nextBytes(g);
+        rand.nextBytes(b);
+        rand.nextBytes(a);
+        IndexColorModel cm = translucent
+                ? new IndexColorModel(bits, colors, r, g, b, a)
+                : new IndexColorModel(bits, colors, r, g, b);
+        BufferedImage img = new BufferedImage(
+                W, H, bits == 8 ? BufferedImage.TYPE_BYTE_INDEXED : BufferedImage.TYPE_BYTE_BINARY,
+                cm
+        );
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                img.getRaster().setSample(x, y, 0, rand.nextInt(colors));
+            }
+        }
+        return img;
+    }
+
+    private void assertSame(File f) throws IOException {
+        assertArrayEquals(decodeWhole(f), readByRows(f), f.getName());
+    }
+
+    @Test
+    public void repositoryImages() throws IOException {
+        File[] pngs = new File(ImageTest.LOCATION).listFiles((d, n) -> n.endsWith(".png"));
+        assertTrue(pngs.length > 0);
+        for (File f : pngs) {
+            assertSame(f);
+        }
+    }
+
+    @Test
+    public void colorTypesAndDepths() throws IOException {
+        assertSame(write("rgb", noise(BufferedImage.TYPE_INT_RGB, 1), false));
+        assertSame(write("rgba", noise(BufferedImage.TYPE_INT_ARGB, 2), false));
+        assertSame(write("gray", noise(BufferedImage.TYPE_BYTE_GRAY, 3), false));
+        assertSame(write("binary", noise(BufferedImage.TYPE_BYTE_BINARY, 4), false));
+        for (int bits : new int[] { 1, 2, 4, 8 }) {
+            assertSame(write("palette" + bits, indexed(bits, 1 << bits, false), false));
+            assertSame(write("alpha" + bits, indexed(bits, 1 << bits, true), false));
+        }
+        // fewer colors than the depth allows
+        assertSame(write("short", indexed(8, 5, true), false));
+    }
+
+    @Test
+    public void declinesWhatItCannotStream() throws IOException {
+        File interlaced = write("interlaced", noise(BufferedImage.TYPE_INT_RGB, 5), true);
+        File deep = write("deep", noise(BufferedImage.TYPE_USHORT_GRAY, 6), false);
+        assertNull(PngRowReader.open(interlaced));
+        assertNull(PngRowReader.open(deep));
+        assertNull(PngRowReader.open(new File("pom.xml")));
+    }
+}
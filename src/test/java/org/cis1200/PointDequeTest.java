@@ -0,0 +1,103 @@
+package org.cis1200;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the primitive point deque and the PointQueue adapter on top of it.
+ */
+public class PointDequeTest {
+
+    @Test
+    public void fifoAcrossGrowth() {
+        PointDeque d = new PointDeque(2);
+        for (int i = 0; i < 100; i++) {
+            d.addLast(i, -i);
+        }
+        assertEquals(100, d.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, d.firstRow());
+            assertEquals(-i, d.firstCol());
+            d.removeFirst();
+        }
+        assertTrue(d.isEmpty());
+    }
+
+    @Test
+    public void bothEnds() {
+        PointDeque d = new PointDeque(4);
+        d.addLast(1, 1);
+        d.addFirst(0, 0);
+        d.addLast(2, 2);
+        d.addFirst(-1, -1);
+        d.addFirst(-2, -2); // wraps and grows
+        assertEquals(-2, d.firstRow());
+        assertEquals(2, d.lastCol());
+        d.removeLast();
+        assertEquals(1, d.lastRow());
+        for (int i = 0; i < d.size(); i++) {
+            assertEquals(i - 2, d.row(i));
+            assertEquals(i - 2, d.col(i));
+        }
+    }
+
+    @Test
+    public void emptyThrows() {
+        PointDeque d = new PointDeque();
+        assertThrows(NoSuchElementException.class, d::firstRow);
+        assertThrows(NoSuchElementException.class, d::removeLast);
+        assertThrows(IndexOutOfBoundsException.class, () -> d.row(0));
+    }
+
+    @Test
+    public void addAllAndForEach() {
+        PointDeque a = new PointDeque(2);
+        a.addLast(1, 2);
+        a.addLast(3, 4);
+        a.addAll(a);
+        List<String> seen = new ArrayList<>();
+        a.forEach((r, c) -> seen.add(r + "," + c));
+        assertEquals(List.of("1,2", "3,4", "1,2", "3,4"), seen);
+
+        a.clear();
+        assertTrue(a.isEmpty());
+        a.addLast(5, 6);
+        assertEquals(5, a.firstRow());
+    }
+
+    @Test
+    public void removeAtMiddle() {
+        PointDeque d = new PointDeque();
+        for (int i = 0; i < 6; i++) {
+            d.addLast(i, i);
+        }
+        d.removeAt(1);
+        d.removeAt(3);
+        assertEquals(4, d.size());
+        int[] expected = { 0, 2, 3, 5 };
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], d.row(i));
+        }
+    }
+
+    @Test
+    public void pointQueueAdapter() {
+        PointQueue q = new PointQueue();
+        q.add(new int[] { 1, 2 });
+        q.add(new int[] { 3, 4 });
+        q.add(new int[] { 5, 6 });
+        assertTrue(q.contains(new int[] { 3, 4 }));
+        assertArrayEquals(new int[] { 3, 4 }, q.remove(1));
+        assertFalse(q.contains(new int[] { 3, 4 }));
+
+        PointQueue copy = q.deepCopy();
+        assertArrayEquals(new int[] { 1, 2 }, q.remove(0));
+        assertEquals(1, q.size());
+        assertEquals(2, copy.size());
+        assertArrayEquals(new int[] { 5, 6 }, copy.get(1));
+    }
+}
@@ -0,0 +1,96 @@
+package org.cis1200;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests reading and writing raw raster files.
+ */
+public class RawRasterTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void saveAndLoad() {
+        String name = new File(dir, "italy.pxr").getPath();
+        ImageTest.ITALY.save(name);
+        assertTrue(RawRaster.isRawRaster(new File(name)));
+        assertEquals(16 + 4 * 640 * 480, new File(name).length());
+
+        PixelPicture back = new PixelPicture(name);
+        assertEquals(640, back.getWidth());
+        assertEquals(480, back.getHeight());
+        assertEquals(0, PixelPicture.diff(ImageTest.ITALY, back));
+    }
+
+    @Test
+    public void mappedView() throws IOException {
+        File f = new File(dir, "small.pxr");
+        RawRaster.write(ManipulateTest.smallSquare(), f);
+        RawRaster raw = RawRaster.open(f);
+        assertEquals(2, raw.getWidth());
+        assertEquals(2, raw.getHeight());
+        assertArrayEquals(ManipulateTest.smallSquare().packed(), toArray(raw));
+    }
+
+    private static int[] toArray(RawRaster raw) {
+        int[] rgb = new int[raw.getPixels().remaining()];
+        raw.getPixels().get(rgb);
+        return rgb;
+    }
+
+    @Test
+    public void overwriteShorter() throws IOException {
+        File f = new File(dir, "over.pxr");
+        RawRaster.write(ManipulateTest.testNewPicRect(), f);
+        RawRaster.write(ManipulateTest.smallSquare(), f);
+        assertEquals(16 + 4 * 4, f.length());
+        assertEquals(0, PixelPicture.diff(ManipulateTest.smallSquare(), RawRaster.read(f)));
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        File f = new File(dir, "junk.pxr");
+        Files.write(f.toPath(), new byte[40]);
+        assertFalse(RawRaster.isRawRaster(f));
+        assertThrows(IOException.class, () -> RawRaster.open(f));
+        assertFalse(RawRaster.isRawRaster(new File(ImageTest.LOCATION + "Italy.png")));
+    }
+
+    @Test
+    public void rejectsWrongLength() {
+        File f = new File(dir, "short.pxr");
+        assertThrows(
+                IllegalArgumentException.class, () -> RawRaster.write(f, 3, 2, new int[5])
+        );
+        assertThrows(
+                IllegalArgumentException.class, () -> RawRaster.write(f, 0, 2, new int[0])
+        );
+        assertFalse(f.exists());
+    }
+
+    @Test
+    public void rejectsRastersTooLargeToMap() throws IOException {
+        // a sparse file of the right size for a raster just over the limit
+        int w = 32768;
+        int h = RawRaster.MAX_PIXELS / w + 1;
+        File f = new File(dir, "huge.pxr");
+        try (RandomAccessFile out = new RandomAccessFile(f, "rw")) {
+            ByteBuffer head = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            head.putInt(RawRaster.MAGIC).putInt(w).putInt(h).putInt(0);
+            out.write(head.array());
+            out.setLength(16 + 4L * w * h);
+        }
+        IOException e = assertThrows(IOException.class, () -> RawRaster.open(f));
+        assertTrue(e.getMessage().contains("larger than"), e.getMessage());
+    }
+}
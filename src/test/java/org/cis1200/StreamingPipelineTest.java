@@ -0,0 +1,123 @@
+package org.cis1200;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that processing a picture a strip at a time gives the same result
+ * as processing it whole.
+ */
+public class StreamingPipelineTest {
+
+    private static final StreamingPipeline STREAMED = StreamingPipeline.start()
+            .map(PointOps.scaleColors(1.0, 0.95, 0.75))
+            .blur(3)
+            .map(PointOps.vignette())
+            .blur(1)
+            .map(PointOps.grayScaleLuminosity());
+
+    private static final Pipeline WHOLE = Pipeline.start()
+            .map(PointOps.scaleColors(1.0, 0.95, 0.75))
+            .then(p -> AdvancedManipulations.blur(p, 3))
+            .map(PointOps.vignette())
+            .then(p -> AdvancedManipulations.blur(p, 1))
+            .map(PointOps.grayScaleLuminosity());
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void stripsMatchWholePicture() {
+        PixelPicture pic = ManipulateTest.testNewPicRect();
+        PixelPicture expected = WHOLE.apply(pic);
+        for (int rows : new int[] { 1, 2, 7, 64, 1000 }) {
+            PixelPicture actual = STREAMED.stripHeight(rows).apply(pic);
+            assertEquals(0, PixelPicture.diff(expected, actual), "strips of " + rows);
+        }
+    }
+
+    @Test
+    public void blurLargerThanStrip() {
+        PixelPicture pic = ManipulateTest.testNewPicRect();
+        PixelPicture expected = AdvancedManipulations.blur(pic, 40);
+        PixelPicture actual = StreamingPipeline.start().blur(40).stripHeight(5).apply(pic);
+        assertEquals(0, PixelPicture.diff(expected, actual));
+    }
+
+    @Test
+    public void fileToFile() throws IOException {
+        File out = new File(dir, "out.png");
+        STREAMED.stripHeight(50).run(new File(ImageTest.LOCATION + "Italy.png"), out);
+        PixelPicture expected = WHOLE.apply(ImageTest.ITALY);
+        assertEquals(0, PixelPicture.diff(expected, new PixelPicture(out.getPath())));
+    }
+
+    // Italy and its mirror image, stacked twice, to stream in many strips
+    private File panorama() throws IOException {
+        PixelPicture mirrored = SimpleManipulations.mirrorVertical(ImageTest.ITALY);
+        PixelPicture tall = PixelPicture.fromPacked(
+                640, 1920, concat(ImageTest.ITALY, mirrored, ImageTest.ITALY, mirrored)
+        );
+        File f = new File(dir, "tall.png");
+        tall.save(f.getPath());
+        return f;
+    }
+
+    private static int[] concat(PixelPicture... pics) {
+        int n = 0;
+        for (PixelPicture p : pics) {
+            n += p.getPackedPixels().length;
+        }
+        int[] all = new int[n];
+        int at = 0;
+        for (PixelPicture p : pics) {
+            int[] rgb = p.getPackedPixels();
+            System.arraycopy(rgb, 0, all, at, rgb.length);
+            at += rgb.length;
+        }
+        return all;
+    }
+
+    @Test
+    public void pngDecodedOnce() throws IOException {
+        File in = panorama();
+        File out = new File(dir, "out.png");
+        assertEquals(1, STREAMED.stripHeight(64).process(in, out));
+        PixelPicture expected = WHOLE.apply(new PixelPicture(in.getPath()));
+        assertEquals(0, PixelPicture.diff(expected, new PixelPicture(out.getPath())));
+    }
+
+    @Test
+    public void otherFormatsDecodedPerStrip() throws IOException {
+        File in = new File(dir, "tall.bmp");
+        new PixelPicture(panorama().getPath()).save(in.getPath());
+        File out = new File(dir, "out.png");
+        // 1920 rows in strips of 64: each strip is a decode of its own
+        assertEquals(30, STREAMED.stripHeight(64).process(in, out));
+        PixelPicture expected = WHOLE.apply(new PixelPicture(in.getPath()));
+        assertEquals(0, PixelPicture.diff(expected, new PixelPicture(out.getPath())));
+    }
+
+    @Test
+    public void rowsAskedForOutOfOrder() throws IOException {
+        // the BMP writer writes the bottom row first, so every strip starts
+        // the PNG over, but the pixels are still right
+        File in = panorama();
+        File out = new File(dir, "out.bmp");
+        assertEquals(30, STREAMED.stripHeight(64).process(in, out));
+        PixelPicture expected = WHOLE.apply(new PixelPicture(in.getPath()));
+        assertEquals(0, PixelPicture.diff(expected, new PixelPicture(out.getPath())));
+    }
+
+    @Test
+    public void missingInput() {
+        assertThrows(
+                IOException.class,
+                () -> STREAMED.run(new File(dir, "missing.png"), new File(dir, "out.png"))
+        );
+    }
+}
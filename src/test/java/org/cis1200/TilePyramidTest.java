@@ -0,0 +1,203 @@
+package org.cis1200;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the tiled pyramid and the zooming view drawn from it.
+ */
+public class TilePyramidTest {
+
+    // spans several tiles, with partial tiles at the edges at every level
+    static final int W = 1100;
+    static final int H = 700;
+
+    static PixelPicture noise(long seed) {
+        Random rand = new Random(seed);
+        int[] rgb = new int[W * H];
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = rand.nextInt(1 << 24);
+        }
+        return PixelPicture.fromPacked(W, H, rgb);
+    }
+
+    // the pixels of a level, put together from its tiles
+    static int[] assemble(TilePyramid p, int level) {
+        int lw = p.getWidth(level);
+        int lh = p.getHeight(level);
+        int[] out = new int[lw * lh];
+        for (int ty = 0; ty * TilePyramid.TILE < lh; ty++) {
+            for (int tx = 0; tx * TilePyramid.TILE < lw; tx++) {
+                PixelPicture t = p.tile(level, tx, ty);
+                int[] src = t.getPackedPixels();
+                for (int row = 0; row < t.getHeight(); row++) {
+                    System.arraycopy(
+                            src, row * t.getWidth(),
+                            out, (ty * TilePyramid.TILE + row) * lw + tx * TilePyramid.TILE,
+                            t.getWidth()
+                    );
+                }
+            }
+        }
+        return out;
+    }
+
+    @Test
+    public void levelsMatchWholeShrinks() {
+        PixelPicture pic = noise(1);
+        TilePyramid p = new TilePyramid(pic, 1000);
+        assertEquals(4, p.getLevels());
+        assertEquals(138, p.getWidth(3));
+        assertEquals(88, p.getHeight(3));
+
+        PixelPicture level = pic;
+        for (int k = 0; k < p.getLevels(); k++) {
+            assertArrayEquals(level.getPackedPixels(), assemble(p, k), "level " + k);
+            level = PackedKernels.downscale(level, 2);
+        }
+    }
+
+    @Test
+    public void updateKeepsUnchangedTiles() {
+        PixelPicture a = noise(2);
+        TilePyramid p = new TilePyramid(a, 1000);
+        for (int k = 0; k < p.getLevels(); k++) {
+            assemble(p, k);
+        }
+        assertEquals(15, p.keptTiles(0));
+
+        int[] px = a.getPackedPixels();
+        px[300 * W + 600] ^= 0x010101;
+        PixelPicture b = PixelPicture.fromPacked(W, H, px);
+        p.update(b, PixelPicture.changedBounds(a, b));
+        assertEquals(14, p.keptTiles(0));
+        // the one tile of the top level covers everything
+        assertEquals(0, p.keptTiles(3));
+
+        TilePyramid fresh = new TilePyramid(b, 1000);
+        for (int k = 0; k < p.getLevels(); k++) {
+            assertArrayEquals(assemble(fresh, k), assemble(p, k), "level " + k);
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        TilePyramid p = new TilePyramid(noise(3), 4);
+        PixelPicture first = p.tile(0, 0, 0);
+        p.tile(0, 1, 0);
+        p.tile(0, 2, 0);
+        p.tile(0, 0, 0);
+        p.tile(0, 3, 0);
+        p.tile(0, 4, 0);
+        assertEquals(4, p.keptTiles(0));
+        // (0, 0) was used recently, so (1, 0) went first
+        assertSame(first, p.tile(0, 0, 0));
+    }
+
+    @Test
+    public void shrinkingKeepsOnlyLevelsThatFit() {
+        TilePyramid p = new TilePyramid(noise(5), 4);
+        assertNull(p.cachedTile(2, 0, 0));
+        PixelPicture top = p.tile(2, 0, 0);
+        assertSame(top, p.cachedTile(2, 0, 0));
+        // levels 0 and 1 have 15 and 6 tiles, more than the 4 kept
+        assertEquals(0, p.keptTiles(0));
+        assertEquals(0, p.keptTiles(1));
+
+        p = new TilePyramid(noise(5), 1000);
+        p.tile(2, 0, 0);
+        assertEquals(12, p.keptTiles(0));
+        assertEquals(4, p.keptTiles(1));
+    }
+
+    static BufferedImage paint(ImageViewport view) {
+        BufferedImage out = new BufferedImage(
+                view.getWidth(), view.getHeight(), BufferedImage.TYPE_INT_RGB
+        );
+        Graphics g = out.getGraphics();
+        view.paint(g);
+        g.dispose();
+        return out;
+    }
+
+    // waits for the tiles the last paint asked for
+    static void settle(ImageViewport view) {
+        long end = System.currentTimeMillis() + 10000;
+        while (view.isBuilding()) {
+            assertTrue(System.currentTimeMillis() < end, "tiles not made");
+            Thread.onSpinWait();
+        }
+    }
+
+    @Test
+    public void viewportDrawsCoarserTilesMeanwhile() {
+        // 144 tiles across level 0, more than a view keeps, so zooming out
+        // makes level 1 but not level 0
+        int size = 12 * TilePyramid.TILE;
+        int[] rgb = new int[size * size];
+        Random rand = new Random(6);
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = rand.nextInt(1 << 24);
+        }
+        PixelPicture pic = PixelPicture.fromPacked(size, size, rgb);
+        ImageViewport view = new ImageViewport(pic);
+        view.setSize(400, 300);
+        view.zoomAt(new Point(0, 0), 0.25);
+        paint(view);
+        settle(view);
+
+        view.zoomAt(new Point(0, 0), 4);
+        BufferedImage out = paint(view);
+        int[] half = PackedKernels.downscale(pic, 2).packed();
+        for (int y = 0; y < TilePyramid.TILE; y += 5) {
+            for (int x = 0; x < TilePyramid.TILE; x += 5) {
+                assertEquals(half[y / 2 * (size / 2) + x / 2], out.getRGB(x, y) & 0xffffff);
+            }
+        }
+        settle(view);
+        out = paint(view);
+        assertEquals(rgb[7 * size + 9], out.getRGB(9, 7) & 0xffffff);
+    }
+
+    @Test
+    public void viewportMapsAndPaints() {
+        PixelPicture pic = noise(4);
+        ImageViewport view = new ImageViewport(pic);
+        assertEquals(new Dimension(1024, 700), view.getPreferredSize());
+        view.setSize(400, 300);
+
+        // no tiles are made yet, so the first paint shows the background
+        BufferedImage out = paint(view);
+        assertEquals(0x404040, out.getRGB(10, 10) & 0xffffff);
+        settle(view);
+        out = paint(view);
+        int[] px = pic.packed();
+        for (int y = 0; y < 300; y += 7) {
+            for (int x = 0; x < 400; x += 7) {
+                assertEquals(px[y * W + x], out.getRGB(x, y) & 0xffffff);
+            }
+        }
+
+        assertEquals(new Point(50, 20), view.toPicture(new Point(50, 20)));
+        view.zoomAt(new Point(100, 100), 4);
+        assertEquals(4, view.getZoom());
+        // the pixel under the zoom point stays put
+        assertEquals(new Point(100, 100), view.toPicture(new Point(100, 100)));
+        assertEquals(new Point(101, 100), view.toPicture(new Point(104, 100)));
+        view.panBy(40, 0);
+        assertEquals(new Point(90, 100), view.toPicture(new Point(100, 100)));
+        view.panBy(4000, 0);
+        assertNull(view.toPicture(new Point(100, 100)));
+
+        view.setPicture(SimpleManipulations.rotateCW(pic));
+        assertEquals(1, view.getZoom());
+        assertEquals(new Rectangle(0, 0, 700, 768), new Rectangle(view.getPreferredSize()));
+    }
+}
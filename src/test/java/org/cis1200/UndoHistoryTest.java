@@ -0,0 +1,158 @@
+package org.cis1200;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the delta-compressed undo history.
+ */
+public class UndoHistoryTest {
+
+    // a session mixing local edits, whole-picture filters and a rotation
+    private static List<PixelPicture> session() {
+        List<PixelPicture> versions = new ArrayList<>();
+        PixelPicture p = ImageTest.ITALY;
+        versions.add(p);
+        p = AdvancedManipulations.flood(p, new Pixel(255, 0, 0), 10, 10);
+        versions.add(p);
+        p = SimpleManipulations.border(p, 5, Pixel.BLACK);
+        versions.add(p);
+        p = SimpleManipulations.grayScaleAverage(p);
+        versions.add(p);
+        p = AdvancedManipulations.flood(p, new Pixel(0, 0, 255), 200, 300);
+        versions.add(p);
+        p = SimpleManipulations.rotateCW(p);
+        versions.add(p);
+        p = SimpleManipulations.border(p, 2, Pixel.WHITE);
+        versions.add(p);
+        p = AdvancedManipulations.flood(p, new Pixel(0, 255, 0), 300, 100);
+        versions.add(p);
+        return versions;
+    }
+
+    @Test
+    public void undoRestoresEveryVersion() {
+        List<PixelPicture> versions = session();
+        UndoHistory history = new UndoHistory(Long.MAX_VALUE, 4);
+        for (PixelPicture v : versions) {
+            history.push(v);
+        }
+        assertEquals(versions.size(), history.size());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(0, PixelPicture.diff(versions.get(versions.size() - 1 - i),
+                    history.get(i)), "get " + i);
+        }
+        for (int i = versions.size() - 1; i >= 0; i--) {
+            assertEquals(0, PixelPicture.diff(versions.get(i), history.undo()), "undo " + i);
+        }
+        assertTrue(history.isEmpty());
+        assertNull(history.undo());
+        assertEquals(0, history.bytesUsed());
+    }
+
+    // a copy of pic with a square painted over
+    private static PixelPicture paint(PixelPicture pic, int top, int left, int size, int rgb) {
+        int[] px = pic.getPackedPixels();
+        for (int row = top; row < top + size; row++) {
+            for (int col = left; col < left + size; col++) {
+                px[row * pic.getWidth() + col] = rgb;
+            }
+        }
+        return PixelPicture.fromPacked(pic.getWidth(), pic.getHeight(), px);
+    }
+
+    @Test
+    public void localEditsAreSmall() {
+        PixelPicture p0 = ImageTest.ITALY;
+        PixelPicture p1 = paint(p0, 100, 100, 20, 0x123456);
+        PixelPicture p2 = paint(p1, 300, 400, 20, 0x654321);
+        UndoHistory history = new UndoHistory(Long.MAX_VALUE, 100);
+        history.push(p0);
+        history.push(p1);
+        history.push(p2);
+
+        // the first picture pushed is a keyframe and the last is whole, but
+        // the middle one is a difference of a few hundred pixels
+        long whole = 4L * 640 * 480;
+        assertTrue(history.bytesUsed() < 2 * whole + 4096, "used " + history.bytesUsed());
+
+        assertSame(p2, history.undo());
+        assertEquals(0, PixelPicture.diff(p1, history.undo()));
+        assertSame(p0, history.undo());
+    }
+
+    @Test
+    public void comparedBeforehand() throws Exception {
+        List<PixelPicture> versions = session();
+        UndoHistory plain = new UndoHistory(Long.MAX_VALUE, 4);
+        UndoHistory compared = new UndoHistory(Long.MAX_VALUE, 4);
+        PixelPicture newest = null;
+        for (PixelPicture v : versions) {
+            PixelPicture older = newest;
+            // compared on another thread, as the GUI does
+            UndoHistory.Change[] change = new UndoHistory.Change[1];
+            Thread t = new Thread(() -> change[0] = older == null ? null
+                    : UndoHistory.compare(older, v));
+            t.start();
+            t.join();
+            plain.push(v);
+            compared.push(v, change[0]);
+            newest = v;
+        }
+        assertEquals(plain.bytesUsed(), compared.bytesUsed());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(0, PixelPicture.diff(plain.get(i), compared.get(i)), "get " + i);
+        }
+
+        // a comparison of other pictures is not used
+        PixelPicture p0 = ImageTest.ITALY;
+        PixelPicture p1 = paint(p0, 100, 100, 20, 0x123456);
+        PixelPicture p2 = paint(p1, 300, 400, 20, 0x654321);
+        UndoHistory.Change wrong = UndoHistory.compare(p0, p2);
+        assertEquals(new Rectangle(100, 100, 320, 220), wrong.getBounds());
+        UndoHistory history = new UndoHistory(Long.MAX_VALUE, 100);
+        history.push(p0);
+        history.push(p1);
+        history.push(p2, wrong);
+        history.undo();
+        assertEquals(0, PixelPicture.diff(p1, history.undo()));
+    }
+
+    @Test
+    public void keyframesStayWhole() {
+        List<PixelPicture> versions = session();
+        UndoHistory every = new UndoHistory(Long.MAX_VALUE, 1);
+        UndoHistory sparse = new UndoHistory(Long.MAX_VALUE, 100);
+        for (PixelPicture v : versions) {
+            every.push(v);
+            sparse.push(v);
+        }
+        assertTrue(every.bytesUsed() > sparse.bytesUsed());
+        assertSame(versions.get(3), every.get(versions.size() - 1 - 3));
+    }
+
+    @Test
+    public void budgetDropsOldest() {
+        List<PixelPicture> versions = session();
+        UndoHistory history = new UndoHistory(3L * 640 * 480 * 4, 1);
+        for (PixelPicture v : versions) {
+            history.push(v);
+            assertTrue(history.bytesUsed() <= 3L * 640 * 480 * 4);
+        }
+        assertEquals(2, history.size());
+        assertSame(versions.get(versions.size() - 1), history.undo());
+        assertSame(versions.get(versions.size() - 2), history.undo());
+        assertTrue(history.isEmpty());
+
+        // the newest version is kept even if it alone is over budget
+        UndoHistory tiny = new UndoHistory(0, 1);
+        tiny.push(versions.get(0));
+        tiny.push(versions.get(1));
+        assertEquals(1, tiny.size());
+        assertSame(versions.get(1), tiny.undo());
+    }
+}